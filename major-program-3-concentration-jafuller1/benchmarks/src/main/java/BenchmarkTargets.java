@@ -0,0 +1,121 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * BenchmarkTargets builds the game operations measured by the JMH benchmarks. JMH only accepts benchmark
+ * classes in a named package, and those cannot see the game's classes in the default package, so each
+ * operation is set up here and handed over as an IntSupplier.
+ */
+public class BenchmarkTargets {
+    private static final long SEED = 42; // Fixed seed so every run measures the same boards
+
+    /**
+     * Creates the operation with the given name for a board of the given size.
+     *
+     * @param name The operation to measure
+     * @param rows The number of rows on the board
+     * @param cols The number of columns on the board
+     * @return The operation, returning a value the benchmark passes to its Blackhole
+     */
+    public static IntSupplier create(String name, int rows, int cols) {
+        int size = rows * cols;
+        switch (name) {
+            case "dealFaces": {
+                Random random = new Random(SEED);
+                return () -> LevelPreparer.dealFaces(size, random)[0];
+            }
+            case "createCardImageList": {
+                CardGridPane grid = new CardGridPane();
+                return () -> {
+                    grid.createCardImageList(size);
+                    return grid.getCardList().size();
+                };
+            }
+            case "shuffleImages": {
+                CardGridPane grid = new CardGridPane();
+                grid.createCardImageList(size);
+                return () -> {
+                    grid.shuffleImages();
+                    return grid.getCardList().get(0);
+                };
+            }
+            case "playGame":
+                return playGame(rows, cols);
+            case "mismatchTurn":
+                return mismatchTurn(rows, cols);
+            case "initCards": {
+                CardGridPane grid = new CardGridPane();
+                return () -> {
+                    grid.initCards(rows, cols);
+                    return grid.getCurrentRows();
+                };
+            }
+            case "flipCard": {
+                CardGridPane grid = new CardGridPane();
+                grid.initCards(rows, cols);
+                Card card = grid.getCard(0, 0);
+                return () -> {
+                    card.setFlipped(!card.isFlipped()); // Alternate between the front and the back
+                    card.flipCard();
+                    return card.getChildren().size();
+                };
+            }
+            case "createGrid":
+                return () -> new CardGridPane().getChildren().size();
+            default:
+                throw new IllegalArgumentException("Unknown benchmark target " + name);
+        }
+    }
+
+    // Plays a whole game with perfect memory: every turn flips both cards of the next pair
+    private static IntSupplier playGame(int rows, int cols) {
+        Board board = new Board(rows, cols, LevelPreparer.dealFaces(rows * cols, new Random(SEED)));
+        int[] order = pairOrder(board);
+        GameEngine engine = new GameEngine();
+        return () -> {
+            engine.newGame(board);
+            for (int i = 0; i < order.length; i += 2) {
+                engine.flip(order[i]);
+                engine.flip(order[i + 1]);
+                engine.resolveTurn();
+            }
+            return engine.getTurnCount();
+        };
+    }
+
+    // Flips two cards that do not match and resolves the turn, which turns them back down again
+    private static IntSupplier mismatchTurn(int rows, int cols) {
+        Board board = new Board(rows, cols, LevelPreparer.dealFaces(rows * cols, new Random(SEED)));
+        int other = 1;
+        while (board.getFace(other) == board.getFace(0)) {
+            other++;
+        }
+        int second = other;
+        GameEngine engine = new GameEngine();
+        engine.newGame(board);
+        return () -> {
+            engine.flip(0);
+            engine.flip(second);
+            return engine.resolveTurn();
+        };
+    }
+
+    // Card indexes ordered so that both cards of each face are next to each other
+    private static int[] pairOrder(Board board) {
+        int[] firstSeen = new int[board.size()];
+        Arrays.fill(firstSeen, -1);
+        int[] order = new int[board.size()];
+        int next = 0;
+        for (int i = 0; i < board.size(); i++) {
+            int face = board.getFace(i);
+            if (firstSeen[face] < 0) {
+                firstSeen[face] = i;
+            } else {
+                order[next++] = firstSeen[face];
+                order[next++] = i;
+            }
+        }
+        return order;
+    }
+}
@@ -0,0 +1,27 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Measures the cost of creating a CardGridPane with all of its Card nodes, which is the same for every level.
+ */
+@State(Scope.Thread)
+public class GridCreationBenchmark {
+    private IntSupplier createGrid;
+
+    @Setup
+    public void setup() {
+        createGrid = Targets.create("createGrid", "8x8");
+    }
+
+    // new CardGridPane(): 64 Card StackPanes, each with its own ImageView
+    @Benchmark
+    public int createGrid() {
+        return createGrid.getAsInt();
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Measures board setup, shuffling and turn handling for every level size and for larger synthetic boards.
+ * Apart from createCardImageList and shuffleImages, which work on CardGridPane's face list, none of these
+ * touch JavaFX.
+ */
+@State(Scope.Thread)
+public class ModelBenchmark {
+    @Param({"2x3", "2x4", "4x4", "4x6", "6x6", "8x8", "16x16", "32x32", "100x100"})
+    public String size;
+
+    private IntSupplier dealFaces;
+    private IntSupplier createCardImageList;
+    private IntSupplier shuffleImages;
+    private IntSupplier playGame;
+    private IntSupplier mismatchTurn;
+
+    @Setup
+    public void setup() {
+        dealFaces = Targets.create("dealFaces", size);
+        createCardImageList = Targets.create("createCardImageList", size);
+        shuffleImages = Targets.create("shuffleImages", size);
+        playGame = Targets.create("playGame", size);
+        mismatchTurn = Targets.create("mismatchTurn", size);
+    }
+
+    // LevelPreparer.dealFaces: lay out and shuffle the face ids of a new board
+    @Benchmark
+    public int dealFaces() {
+        return dealFaces.getAsInt();
+    }
+
+    // CardGridPane.createCardImageList: build and shuffle the boxed face list
+    @Benchmark
+    public int createCardImageList() {
+        return createCardImageList.getAsInt();
+    }
+
+    // CardGridPane.shuffleImages: shuffle an existing face list
+    @Benchmark
+    public int shuffleImages() {
+        return shuffleImages.getAsInt();
+    }
+
+    // GameEngine: flip and match every pair of a board
+    @Benchmark
+    public int playGame() {
+        return playGame.getAsInt();
+    }
+
+    // GameEngine: one turn whose two cards do not match
+    @Benchmark
+    public int mismatchTurn() {
+        return mismatchTurn.getAsInt();
+    }
+}
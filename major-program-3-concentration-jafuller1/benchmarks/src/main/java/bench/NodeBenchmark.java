@@ -0,0 +1,40 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Measures the JavaFX side of a level: resetting the grid with initCards and flipping a single Card. The
+ * nodes are never shown, so this runs wherever JavaFX can create nodes without a display.
+ */
+@State(Scope.Thread)
+public class NodeBenchmark {
+    @Param({"2x3", "2x4", "4x4", "4x6", "6x6", "8x8"})
+    public String size;
+
+    private IntSupplier initCards;
+    private IntSupplier flipCard;
+
+    @Setup
+    public void setup() {
+        initCards = Targets.create("initCards", size);
+        flipCard = Targets.create("flipCard", size);
+    }
+
+    // CardGridPane.initCards: deal a new board into the existing cards
+    @Benchmark
+    public int initCards() {
+        return initCards.getAsInt();
+    }
+
+    // Card.flipCard: alternate one card between its front and its back
+    @Benchmark
+    public int flipCard() {
+        return flipCard.getAsInt();
+    }
+}
@@ -0,0 +1,31 @@
+package bench;
+
+import java.lang.reflect.Method;
+import java.util.function.IntSupplier;
+
+/**
+ * Targets looks up the game operations prepared by BenchmarkTargets in the default package.
+ */
+final class Targets {
+    private Targets() {
+    }
+
+    /**
+     * Creates a game operation for a board size, given as rows "x" columns.
+     *
+     * @param name The operation to measure
+     * @param size The board size, such as "8x8"
+     * @return The operation to call from a benchmark method
+     */
+    static IntSupplier create(String name, String size) {
+        String[] parts = size.split("x");
+        try {
+            Class<?> targets = Class.forName("BenchmarkTargets");
+            Method create = targets.getMethod("create", String.class, int.class, int.class);
+            return (IntSupplier) create.invoke(null, name,
+                    Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create benchmark target " + name, e);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+@echo off
+rem Starts the game on the linked runtime with the recorded class-data sharing archive.
+rem Run it from the game folder so the deck and sound are found.
+set RUNTIME=%~dp0..
+"%RUNTIME%\bin\java" -XX:SharedArchiveFile="%RUNTIME%\app\concentration.jsa" -Xshare:auto -cp "%RUNTIME%\app\concentration.jar" Main %*
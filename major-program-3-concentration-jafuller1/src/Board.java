@@ -0,0 +1,95 @@
+import java.util.Arrays;
+
+/**
+ * Board is the plain-Java model of a card layout. It stores the face id of every card in an int array and
+ * the flipped and matched state of every card in bitsets, so the game can be played without any JavaFX
+ * objects. Cards are addressed by index in row-major order.
+ */
+public class Board {
+    private final int rows, cols; // Size of the grid
+    private final int[] faces; // Face id of every card
+    private final long[] flipped; // Bit set for each card that is face up but not matched yet
+    private final long[] matched; // Bit set for each card that has been matched
+
+    // Constructor that accepts the grid size and the face id of every card in row-major order
+    public Board(int rows, int cols, int[] faces) {
+        if (faces.length != rows * cols) {
+            throw new IllegalArgumentException("Expected " + rows * cols + " faces but got " + faces.length);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.faces = faces;
+        int words = (faces.length + 63) >>> 6; // One bit per card
+        this.flipped = new long[words];
+        this.matched = new long[words];
+    }
+
+    /**
+     * Turns every card face down and clears all matches.
+     */
+    public void reset() {
+        Arrays.fill(flipped, 0L);
+        Arrays.fill(matched, 0L);
+    }
+
+    // Index of the card at a row and column
+    public int index(int row, int col) {
+        return row * cols + col;
+    }
+
+    // Row of the card at an index
+    public int rowOf(int index) {
+        return index / cols;
+    }
+
+    // Column of the card at an index
+    public int colOf(int index) {
+        return index % cols;
+    }
+
+    public int getFace(int index) {
+        return faces[index];
+    }
+
+    public boolean isFlipped(int index) {
+        return (flipped[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void setFlipped(int index, boolean value) {
+        if (value) {
+            flipped[index >>> 6] |= 1L << index;
+        } else {
+            flipped[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    public boolean isMatched(int index) {
+        return (matched[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void setMatched(int index, boolean value) {
+        if (value) {
+            matched[index >>> 6] |= 1L << index;
+        } else {
+            matched[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    // A card is showing its face when it is flipped or matched
+    public boolean isFaceUp(int index) {
+        return isFlipped(index) || isMatched(index);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    // Number of cards on the board
+    public int size() {
+        return faces.length;
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.function.IntConsumer;
+
+/**
+ * BoardView is implemented by the panes that draw a Board: CardGridPane with one Card node per card, and
+ * CanvasBoardView, which draws the whole board on one Canvas.
+ */
+public interface BoardView {
+    /**
+     * Shows a prepared layout, replacing the current board in one step.
+     *
+     * @param level The prepared layout to show
+     */
+    void applyLevel(PreparedLevel level);
+
+    /**
+     * Updates one card to show the state the board holds for it.
+     *
+     * @param index The board index of the card
+     */
+    void refreshCard(int index);
+
+    /**
+     * Shows the current board with the faces and back of another deck, keeping every card's state.
+     *
+     * @param deck The deck to draw the cards with
+     */
+    void switchDeck(CardDeck deck);
+
+    /**
+     * Redraws the cards showing a face whose image was replaced in the deck.
+     *
+     * @param faceId The face that changed, or CardDeck.BACK for the card back
+     */
+    void faceChanged(int faceId);
+
+    /**
+     * Sets what happens when a card of the active board is pressed. The view maps the press to a card
+     * itself and filters out repeated presses with a PressFilter.
+     *
+     * @param onCardPressed Called with the board index of the pressed card
+     */
+    void setOnCardPressed(IntConsumer onCardPressed);
+
+    /**
+     * Sets what happens when a card changed by refreshCard starts showing its new side: halfway through
+     * the flip animation on the card grid, or when the canvas redraws the card.
+     *
+     * @param onCardShown Called with the board index of the card
+     */
+    void setOnCardShown(IntConsumer onCardShown);
+}
@@ -0,0 +1,232 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Bot is a computer player for the headless simulator. It only learns a card's face when the card is
+ * flipped, and remembers up to a fixed number of seen cards, forgetting the oldest first. A bot with no
+ * memory plays at random, and a bot with unlimited memory plays perfectly.
+ *
+ * A face can appear on more than two cards when the deck has fewer faces than the board has pairs, so the
+ * remembered cards of each face are kept in a list linked through two arrays indexed by card.
+ */
+public class Bot {
+    public static final int UNLIMITED = Integer.MAX_VALUE; // Memory size of a perfect-memory bot
+
+    private final String name; // Name of the strategy, used in the simulator's output
+    private final int memorySize; // Number of seen cards the bot can remember
+
+    private Board board; // Board being played
+    private Random random; // Source of random picks
+    private boolean[] remembered; // Whether the bot remembers each card
+    private int[] faceFirst; // First remembered card with each face, or -1
+    private int[] nextSeen; // Next remembered card with the same face, or -1, indexed by card
+    private int[] prevSeen; // Previous remembered card with the same face, or -1, indexed by card
+    private int[] order; // Remembered cards in the order they were seen, oldest first
+    private int orderStart, orderCount; // Ring buffer bounds inside order
+    private int liveCount; // Number of cards currently remembered
+    private int[] knownPairs; // Stack of pairs whose two cards are both remembered
+    private int knownPairCount; // Number of ints used in knownPairs
+    private int playingPartner = -1; // Partner of the first card when playing a known pair
+
+    // Constructor that accepts the strategy name and how many cards the bot can remember
+    public Bot(String name, int memorySize) {
+        this.name = name;
+        this.memorySize = memorySize;
+    }
+
+    /**
+     * Creates a bot from its command line name: "random", "perfect" or "limited:N".
+     *
+     * @param strategy The strategy name
+     * @return A new Bot
+     */
+    public static Bot forStrategy(String strategy) {
+        if (strategy.equals("random")) {
+            return new Bot(strategy, 0);
+        } else if (strategy.equals("perfect")) {
+            return new Bot(strategy, UNLIMITED);
+        } else if (strategy.startsWith("limited:")) {
+            return new Bot(strategy, Integer.parseInt(strategy.substring(8)));
+        }
+        throw new IllegalArgumentException("Unknown strategy " + strategy + " (use random, perfect or limited:N)");
+    }
+
+    /**
+     * Forgets everything and gets ready to play a board. The arrays are only reallocated when the board
+     * grows, so a bot can play many games without creating garbage.
+     *
+     * @param board  The board about to be played
+     * @param random The source of random picks
+     */
+    public void newGame(Board board, Random random) {
+        this.board = board;
+        this.random = random;
+        int size = board.size();
+        if (remembered == null || remembered.length < size) {
+            remembered = new boolean[size];
+            faceFirst = new int[size]; // Face ids stay below the number of pairs
+            nextSeen = new int[size];
+            prevSeen = new int[size];
+            order = new int[size];
+            knownPairs = new int[size * 2];
+        }
+        Arrays.fill(remembered, false);
+        Arrays.fill(faceFirst, -1);
+        orderStart = 0;
+        orderCount = 0;
+        liveCount = 0;
+        knownPairCount = 0;
+        playingPartner = -1;
+    }
+
+    /**
+     * Picks the first card of a turn: one card of a known pair if there is one, otherwise an unseen card.
+     *
+     * @return The index of the card to flip
+     */
+    public int pickFirst() {
+        while (knownPairCount > 0) {
+            int second = knownPairs[--knownPairCount];
+            int first = knownPairs[--knownPairCount];
+            if (remembered[first] && remembered[second]) { // Skip pairs forgotten since
+                playingPartner = second;
+                return first;
+            }
+        }
+        playingPartner = -1;
+        return pickUnseen(-1);
+    }
+
+    /**
+     * Picks the second card of a turn: the partner of the first card if the bot remembers it, otherwise
+     * an unseen card.
+     *
+     * @param first The index of the first card, already face up
+     * @return The index of the card to flip
+     */
+    public int pickSecond(int first) {
+        if (playingPartner >= 0) {
+            return playingPartner;
+        }
+        int partner = rememberedPartner(first, board.getFace(first)); // Face up, so the bot may look
+        return partner >= 0 ? partner : pickUnseen(first);
+    }
+
+    /**
+     * Tells the bot the face of a card that was just flipped.
+     *
+     * @param index The index of the flipped card
+     */
+    public void saw(int index) {
+        if (memorySize == 0 || remembered[index]) {
+            return; // Nothing to remember, or nothing new to learn
+        }
+        int face = board.getFace(index);
+        remember(index, face);
+        int partner = rememberedPartner(index, face);
+        if (partner >= 0 && knownPairCount < knownPairs.length) {
+            knownPairs[knownPairCount++] = partner; // Two cards of this face are known now
+            knownPairs[knownPairCount++] = index;
+        }
+    }
+
+    /**
+     * Tells the bot how the turn ended so it can forget matched cards.
+     *
+     * @param first  The first card of the turn
+     * @param second The second card of the turn
+     */
+    public void turnEnded(int first, int second) {
+        playingPartner = -1;
+        if (board.isMatched(first)) {
+            forget(first);
+            forget(second);
+        }
+    }
+
+    // The other remembered card with the same face, or -1
+    private int rememberedPartner(int index, int face) {
+        for (int card = faceFirst[face]; card >= 0; card = nextSeen[card]) {
+            if (card != index && !board.isMatched(card)) {
+                return card;
+            }
+        }
+        return -1;
+    }
+
+    // Remembers a card, forgetting the oldest one when memory is full
+    private void remember(int index, int face) {
+        if (liveCount == memorySize) {
+            forget(order[orderStart]);
+        }
+        remembered[index] = true;
+        prevSeen[index] = -1; // Put it at the front of its face's list
+        nextSeen[index] = faceFirst[face];
+        if (faceFirst[face] >= 0) {
+            prevSeen[faceFirst[face]] = index;
+        }
+        faceFirst[face] = index;
+        order[(orderStart + orderCount) % order.length] = index;
+        orderCount++;
+        liveCount++;
+    }
+
+    // Forgets a card; its ring buffer entry is dropped once it reaches the front
+    private void forget(int index) {
+        if (!remembered[index]) {
+            return;
+        }
+        remembered[index] = false;
+        liveCount--;
+        int prev = prevSeen[index]; // Unlink it from its face's list
+        int next = nextSeen[index];
+        if (prev >= 0) {
+            nextSeen[prev] = next;
+        } else {
+            faceFirst[board.getFace(index)] = next;
+        }
+        if (next >= 0) {
+            prevSeen[next] = prev;
+        }
+
+        // Skip entries at the front that have been forgotten already
+        while (orderCount > 0 && !remembered[order[orderStart]]) {
+            orderStart = (orderStart + 1) % order.length;
+            orderCount--;
+        }
+    }
+
+    // Picks a random face-down card the bot does not remember, or any face-down card if it remembers them all
+    private int pickUnseen(int exclude) {
+        int size = board.size();
+        for (int attempt = 0; attempt < 32; attempt++) {
+            int index = random.nextInt(size);
+            if (index != exclude && !board.isFaceUp(index) && !remembered[index]) {
+                return index;
+            }
+        }
+
+        // Few unseen cards are left, so walk the board from a random start
+        int start = random.nextInt(size);
+        int fallback = -1;
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            if (index == exclude || board.isFaceUp(index)) {
+                continue;
+            }
+            if (!remembered[index]) {
+                return index;
+            }
+            fallback = index;
+        }
+        return fallback;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMemorySize() {
+        return memorySize;
+    }
+}
@@ -0,0 +1,253 @@
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * CanvasBoardView draws a whole board on a single Canvas from the deck's shared atlas, so the number of
+ * scene graph nodes stays the same however big the board is. Clicks are mapped to a card with arithmetic,
+ * and only cards marked dirty are redrawn on the next pulse. Cards shrink to fit the board into its
+ * largest size, but never below MIN_CELL_SIZE, so very big boards grow past it and need a ScrollPane.
+ */
+public class CanvasBoardView extends Canvas implements BoardView {
+    private static final double PADDING = 2; // Gap around each card, like the back of a Card
+    public static final int MIN_CELL_SIZE = 16; // Smallest card that is still playable, bigger boards scroll
+
+    private final int maxCardSize; // Largest size a card is drawn at
+    private final double maxBoardSize; // Largest width or height of the whole board
+    private double cellSize; // Size of a card on the current board
+
+    private Board board; // Board being shown
+    private CardDeck deck; // Deck holding the faces
+    private long[] dirty = new long[0]; // Bit set for each card that needs redrawing
+    private boolean anyDirty; // Whether any bit in dirty is set
+    private boolean live = true; // Whether changes are drawn, a board out of sight only collects them
+    private IntConsumer onCardPressed; // Called with the index of a pressed card
+    private IntConsumer onCardShown; // Called with the index of each card once its new state is drawn
+    private final PressFilter pressFilter = new PressFilter(); // Drops repeated presses
+
+    // Redraws dirty cards on the next pulse, then stops until something changes again
+    private final AnimationTimer redrawTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            redrawDirty();
+            stop();
+        }
+    };
+
+    // Constructor that accepts the largest card size and the largest size of the whole board
+    public CanvasBoardView(int maxCardSize, double maxBoardSize) {
+        this.maxCardSize = maxCardSize;
+        this.maxBoardSize = maxBoardSize;
+
+        // Map the click position to a card instead of giving every card its own listener
+        setOnMousePressed(e -> {
+            if (!e.isSynthesized()) { // Touches are handled below
+                press(e.getX(), e.getY(), e.getClickCount());
+            }
+        });
+        setOnTouchPressed(e -> {
+            press(e.getTouchPoint().getX(), e.getTouchPoint().getY(), 1);
+            e.consume();
+        });
+    }
+
+    // Passes a press at a position on the canvas on to the game
+    private void press(double x, double y, int clickCount) {
+        if (board == null || onCardPressed == null) {
+            return;
+        }
+        int col = (int) (x / cellSize);
+        int row = (int) (y / cellSize);
+        if (row >= 0 && row < board.getRows() && col >= 0 && col < board.getCols()) {
+            int index = board.index(row, col);
+            if (pressFilter.accept(index, clickCount, System.nanoTime())) {
+                onCardPressed.accept(index);
+            }
+        }
+    }
+
+    /**
+     * Shows a prepared layout, sizing the cards so the whole board fits (down to MIN_CELL_SIZE) and drawing
+     * every card.
+     *
+     * @param level The prepared layout to show
+     */
+    @Override
+    public void applyLevel(PreparedLevel level) {
+        board = level.getBoard();
+        pressFilter.reset();
+        deck = level.getDeck();
+        cellSize = cellSizeFor(board.getRows(), board.getCols());
+        setWidth(board.getCols() * cellSize);
+        setHeight(board.getRows() * cellSize);
+        deck = forCellSize(deck); // Faces at the drawn size
+
+        dirty = new long[(board.size() + 63) >>> 6];
+        anyDirty = false;
+        if (!live) {
+            Arrays.fill(dirty, -1L); // Draw the whole board once it comes into sight
+            anyDirty = true;
+            return;
+        }
+        GraphicsContext gc = getGraphicsContext2D();
+        gc.clearRect(0, 0, getWidth(), getHeight());
+        for (int i = 0; i < board.size(); i++) {
+            drawCard(gc, i);
+        }
+    }
+
+    // Size of a card on a board with this many rows and columns
+    private double cellSizeFor(int rows, int cols) {
+        int longestSide = Math.max(rows, cols);
+        return Math.max(Math.min(MIN_CELL_SIZE, maxCardSize),
+                Math.min(maxCardSize, Math.floor(maxBoardSize / longestSide)));
+    }
+
+    /**
+     * Returns the size in pixels faces are drawn at on a board of the given size, taking the screen's
+     * scale into account, so a layout can be decoded at that size before it is shown.
+     *
+     * @param rows The number of rows
+     * @param cols The number of columns
+     * @return The face size in pixels
+     */
+    public int getFacePixels(int rows, int cols) {
+        double scale = getScene() != null && getScene().getWindow() != null
+                ? getScene().getWindow().getOutputScaleX() : 1;
+        return (int) Math.ceil((cellSizeFor(rows, cols) - 2 * PADDING) * scale);
+    }
+
+    // Variant of a deck decoded at the size a card is drawn at on this board
+    private CardDeck forCellSize(CardDeck deck) {
+        return deck.forSize(getFacePixels(board.getRows(), board.getCols()));
+    }
+
+    /**
+     * Draws the current board again with another deck.
+     *
+     * @param deck The deck to draw the cards with
+     */
+    @Override
+    public void switchDeck(CardDeck deck) {
+        if (board == null) {
+            return;
+        }
+        this.deck = forCellSize(deck);
+        for (int i = 0; i < board.size(); i++) {
+            refreshCard(i);
+        }
+    }
+
+    /**
+     * Marks the cards showing a changed face for redrawing: face-up cards with that face, or every
+     * face-down card when the back changed.
+     *
+     * @param faceId The face that changed, or CardDeck.BACK for the card back
+     */
+    @Override
+    public void faceChanged(int faceId) {
+        if (board == null) {
+            return;
+        }
+        for (int i = 0; i < board.size(); i++) {
+            boolean faceUp = board.isFaceUp(i);
+            if (faceId == CardDeck.BACK ? !faceUp : faceUp && board.getFace(i) == faceId) {
+                refreshCard(i);
+            }
+        }
+    }
+
+    /**
+     * Marks a card to be redrawn on the next pulse.
+     *
+     * @param index The board index of the card
+     */
+    @Override
+    public void refreshCard(int index) {
+        dirty[index >>> 6] |= 1L << index;
+        if (!anyDirty) {
+            anyDirty = true;
+            if (live) {
+                redrawTimer.start();
+            }
+        }
+    }
+
+    /**
+     * Turns drawing on or off. While off, changed cards are only marked, and they are drawn in one go when
+     * drawing is turned back on. Used for boards that are scrolled out of sight.
+     *
+     * @param live Whether changes should be drawn
+     */
+    public void setLive(boolean live) {
+        this.live = live;
+        if (live && anyDirty) {
+            redrawTimer.start();
+        }
+    }
+
+    // Redraws every dirty card and clears the dirty bits
+    private void redrawDirty() {
+        GraphicsContext gc = getGraphicsContext2D();
+        for (int word = 0; word < dirty.length; word++) {
+            long bits = dirty[word];
+            while (bits != 0) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                if (index >= board.size()) {
+                    break; // Bits past the last card, set when a whole board was marked
+                }
+                drawCard(gc, index);
+                if (onCardShown != null) {
+                    onCardShown.accept(index);
+                }
+                bits &= bits - 1; // Clear the lowest set bit
+            }
+        }
+        Arrays.fill(dirty, 0L);
+        anyDirty = false;
+    }
+
+    // Draws one card: its face when face up, on green once matched, or the theme's back (plain red by default)
+    private void drawCard(GraphicsContext gc, int index) {
+        double x = board.colOf(index) * cellSize;
+        double y = board.rowOf(index) * cellSize;
+        gc.clearRect(x, y, cellSize, cellSize);
+
+        if (board.isFaceUp(index)) {
+            if (board.isMatched(index)) {
+                gc.setFill(Color.GREEN);
+                gc.fillRect(x, y, cellSize, cellSize);
+            }
+            Rectangle2D region = deck.getRegion(board.getFace(index));
+            gc.drawImage(deck.getAtlas(), region.getMinX(), region.getMinY(), region.getWidth(), region.getHeight(),
+                    x + PADDING, y + PADDING, cellSize - 2 * PADDING, cellSize - 2 * PADDING);
+        } else if (deck.getBack() != null) {
+            gc.drawImage(deck.getBack(), x + PADDING, y + PADDING, cellSize - 2 * PADDING, cellSize - 2 * PADDING);
+        } else {
+            gc.setFill(Color.RED);
+            gc.fillRect(x + PADDING, y + PADDING, cellSize - 2 * PADDING, cellSize - 2 * PADDING);
+            gc.setStroke(Color.BLACK);
+            gc.setLineWidth(1);
+            gc.strokeRect(x + PADDING, y + PADDING, cellSize - 2 * PADDING, cellSize - 2 * PADDING);
+        }
+    }
+
+    @Override
+    public void setOnCardPressed(IntConsumer onCardPressed) {
+        this.onCardPressed = onCardPressed;
+    }
+
+    @Override
+    public void setOnCardShown(IntConsumer onCardShown) {
+        this.onCardShown = onCardShown;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+}
@@ -1,16 +1,35 @@
+import javafx.animation.Interpolator;
+import javafx.animation.ScaleTransition;
+import javafx.scene.CacheHint;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
 import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
 import javafx.scene.shape.Rectangle;
+import javafx.util.Duration;
 
 public class Card extends StackPane {
+    private static final double PADDING = 2; // Padding around the back rectangle
+    private static final Duration HALF_FLIP = Duration.millis(90); // Time to turn the card edge-on
+    private static final Background MATCHED_BACKGROUND =
+            new Background(new BackgroundFill(Color.GREEN, null, null)); // Shared by all matched cards
+
     // Instance variables
     private boolean flipped;
     private boolean matched;
     private String path;
+    private int faceId = -1; // Id of the face in the deck, -1 until a face is set
+    private CardDeck deck; // Deck the face comes from, which also gives the back, or null
     private Image image;
-    private ImageView imageView;
+    private ImageView imageView; // Front of the card
+    private Rectangle back; // Back of the card, built once and shown or hidden
+
+    private ScaleTransition flipOut; // Turns the card edge-on, created on the first animated flip
+    private ScaleTransition flipIn; // Turns the card back to face the player
+    private Runnable onSideShown; // Called when an animated flip shows the card's new side, or null
 
     // Position of the card in the grid
     private int row, col;
@@ -23,50 +42,73 @@ public class Card extends StackPane {
         this.matched = false;
         this.path = "";
         this.imageView = new ImageView();
-        // Add the ImageView to the StackPane
-        getChildren().add(imageView);
+        this.back = new Rectangle();
+        back.setStroke(Color.BLACK);
+        back.setStrokeWidth(1);
+        // Both sides stay in the StackPane, flipping only changes which one is visible
+        getChildren().addAll(back, imageView);
+        showSide();
     }
 
-    // Constructor with an image path
-    public Card(String path) {
-        // Call the default constructor
-        this();
-        // Set the image path for this card
-        setPath(path);
-    }
 
     // Flips the card to show either its front or back
     public void flipCard() {
-        getChildren().clear();
-
-        if (isFlipped()) {
-            // If the card is flipped, show the image
-            imageView.setImage(new Image(getPath()));
-            // Add the ImageView to display the image
-            getChildren().add(imageView);
-        } else {
-            // If the card is not flipped, show a rectangle representing the card back
-            // Padding around the rectangle
-            double padding = 2;
-            // Width of the back rectangle
-            double rectWidth = this.getPrefWidth() - 2 * padding;
-            // Height of the back rectangle
-            double rectHeight = this.getPrefHeight() - 2 * padding;
-            Rectangle grayRect = new Rectangle(rectWidth, rectHeight);
-
-            // Set the color of the rectangle based on whether the card is disabled
-            if (this.isDisabled()) {
-                grayRect.setFill(Color.LIGHTYELLOW);
-            } else {
-                grayRect.setFill(Color.RED);
-            }
-
-            grayRect.setStroke(Color.BLACK);
-            grayRect.setStrokeWidth(1);
-
-            // Adds the rectangle to the StackPane
-            getChildren().add(grayRect);
+        if (flipOut != null) {
+            // Finish any running animation at once
+            flipOut.stop();
+            flipIn.stop();
+            setScaleX(1);
+            setCache(false);
         }
+        showSide();
+    }
+
+    /**
+     * Flips the card to show either its front or back, turning it around its vertical axis. The card is
+     * cached as a bitmap while it turns, so the animation does not re-render the image every frame.
+     */
+    public void animateFlip() {
+        if (flipOut == null) {
+            flipOut = new ScaleTransition(HALF_FLIP, this);
+            flipOut.setFromX(1);
+            flipOut.setToX(0);
+            flipOut.setInterpolator(Interpolator.EASE_IN);
+            flipIn = new ScaleTransition(HALF_FLIP, this);
+            flipIn.setFromX(0);
+            flipIn.setToX(1);
+            flipIn.setInterpolator(Interpolator.EASE_OUT);
+            flipOut.setOnFinished(e -> {
+                showSide(); // Swap sides while the card is edge-on
+                flipIn.playFromStart();
+                if (onSideShown != null) {
+                    onSideShown.run();
+                }
+            });
+            flipIn.setOnFinished(e -> setCache(false));
+        }
+        flipIn.stop();
+        setCache(true);
+        setCacheHint(CacheHint.SCALE);
+        flipOut.playFromStart();
+    }
+
+    // Sets what to call when an animated flip swaps to the card's new side, halfway through the flip
+    public void setOnSideShown(Runnable onSideShown) {
+        this.onSideShown = onSideShown;
+    }
+
+    // Shows the front if the card is flipped, otherwise the back
+    private void showSide() {
+        boolean front = isFlipped();
+        imageView.setVisible(front);
+        back.setVisible(!front);
+        refreshBack();
+    }
+
+    // Sets the back from the deck's theme, or light yellow when the card is disabled
+    public void refreshBack() {
+        Paint fill = deck != null ? deck.getBackPaint() : Color.RED;
+        back.setFill(isDisabled() ? Color.LIGHTYELLOW : fill);
     }
 
     // Sets the size of the card and adjusts the size of its associated image
@@ -74,20 +116,25 @@ public class Card extends StackPane {
         this.setPrefSize(width, height);
         imageView.setFitHeight(height);
         imageView.setFitWidth(width);
+        back.setWidth(width - 2 * PADDING);
+        back.setHeight(height - 2 * PADDING);
     }
 
-    // Sets the image path for the card and loads the image
-    public void setPath(String path) {
-        this.path = path;
-        this.image = new Image(path);
+    // Sets the face of the card to a region of the deck's shared atlas image
+    public void setFace(CardDeck deck, int faceId) {
+        this.path = deck.getFaceKey(faceId);
+        this.faceId = faceId;
+        this.deck = deck;
+        this.image = deck.getAtlas();
+        this.imageView.setViewport(deck.getRegion(faceId)); // Only show this face's part of the atlas
         this.imageView.setImage(image);
     }
 
     // Marks the card as matched and ensures the image is displayed
     public void setMatched() {
-        this.matched = true;
-        imageView.setImage(getImage());
-        getChildren().add(imageView);
+        setMatched(true);
+        setFlipped(true);
+        showSide();
     }
 
     // Sets the position of the card within the grid (row and column)
@@ -121,12 +168,17 @@ public class Card extends StackPane {
 
     public void setMatched(boolean matched) {
         this.matched = matched; // Update the matched state
+        setBackground(matched ? MATCHED_BACKGROUND : null); // Matched cards get a green background
     }
 
     public String getPath() {
         return path;
     }
 
+    public int getFaceId() {
+        return faceId;
+    }
+
     public Image getImage() {
         return image;
     }
@@ -0,0 +1,505 @@
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.ImagePattern;
+import javafx.scene.paint.Paint;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * CardDeck holds every card face of a deck packed into one shared atlas image, plus an index giving the
+ * region of the atlas that belongs to each face. Cards show a face by pointing their ImageView at the atlas
+ * and setting the viewport to that region.
+ *
+ * A deck is read from a single zip file. If the zip contains a "deck.txt" index and the "atlas.png" it
+ * describes, the atlas is used as is. Otherwise the loose image_N.png entries are decoded and packed into
+ * a new atlas while loading.
+ *
+ * Faces are normally shown smaller than they are stored. forSize returns a variant of the deck whose faces
+ * were decoded straight at the size they are drawn at, so nothing is scaled while rendering and the atlas
+ * takes far less texture memory. Variants are made once per size and kept with the deck.
+ *
+ * A theme pack is a folder of image_N.png faces plus an optional back.png for the card backs. Decks read
+ * from a folder keep their atlas and back writable, so a face that changes on disk can be decoded again
+ * and copied over its old region while the board is showing it.
+ */
+public class CardDeck {
+    public static final String DEFAULT_DECK = "cardimages.zip"; // Deck shipped with the game
+    public static final String INDEX_ENTRY = "deck.txt"; // Index of a prepacked deck
+    public static final String ATLAS_ENTRY = "atlas.png"; // Atlas image of a prepacked deck
+    public static final String BACK_FILE = "back.png"; // Card back of a theme pack
+    public static final int BACK = -1; // Face id used for the card back
+
+    private static CardDeck defaultDeck; // Deck used by cards unless another one is chosen
+
+    private final String name; // Name of the deck, usually its file name
+    private final Image atlas; // Image holding all faces of the deck
+    private final Rectangle2D[] regions; // Region of the atlas for each face id
+    private IntFunction<CardDeck> source; // Loads the deck again at a face size, or null if it cannot
+    private WritableImage back; // Card back, or null for the plain red back
+    private Paint backPaint = Color.RED; // Fill for card backs, made from the back image
+    private final Map<Integer, CompletableFuture<CardDeck>> variants = new HashMap<>(); // Variants by face size
+
+    // Constructor that accepts the atlas and the region of every face
+    public CardDeck(String name, Image atlas, Rectangle2D[] regions) {
+        this.name = name;
+        this.atlas = atlas;
+        this.regions = regions;
+    }
+
+    /**
+     * Returns a variant of this deck with every face decoded to fit a square of the given size. Faces
+     * are never scaled up, so sizes at or above the stored size return this deck. The first request for
+     * a size decodes the faces, so call it off the FX thread when possible. The decode runs without
+     * holding the deck's lock, so other sizes can be asked for meanwhile; later requests for the same
+     * size wait for it.
+     *
+     * @param size The size in pixels the faces are drawn at
+     * @return A deck with the same faces at that size
+     */
+    public CardDeck forSize(int size) {
+        CompletableFuture<CardDeck> variant;
+        boolean decode = false;
+        synchronized (this) {
+            if (source == null || size <= 0 || size >= getFaceSize()) {
+                return this;
+            }
+            variant = variants.get(size);
+            if (variant == null) {
+                variant = new CompletableFuture<>();
+                variants.put(size, variant);
+                decode = true; // This thread decodes it
+            }
+        }
+        if (!decode) {
+            return variant.join(); // Decoded already, or being decoded by another thread
+        }
+        try {
+            variant.complete(source.apply(size));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                variants.remove(size); // Let a later request try again
+            }
+            variant.completeExceptionally(e);
+            throw e;
+        }
+        return variant.join();
+    }
+
+    /**
+     * Returns the variant of this deck for a face size, decoding it on an executor unless it was decoded
+     * already. The future of a variant that is ready is completed when it is returned.
+     *
+     * @param size     The size in pixels the faces are drawn at
+     * @param executor Runs the decode
+     * @return A future completed with the deck at that size
+     */
+    public CompletableFuture<CardDeck> forSizeAsync(int size, Executor executor) {
+        synchronized (this) {
+            if (source == null || size <= 0 || size >= getFaceSize()) {
+                return CompletableFuture.completedFuture(this);
+            }
+            CompletableFuture<CardDeck> variant = variants.get(size);
+            if (variant != null && variant.isDone()) {
+                return variant;
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> forSize(size), executor);
+    }
+
+    // Largest width or height of a face as stored in this deck
+    private int getFaceSize() {
+        double largest = 0;
+        for (Rectangle2D region : regions) {
+            largest = Math.max(largest, Math.max(region.getWidth(), region.getHeight()));
+        }
+        return (int) Math.ceil(largest);
+    }
+
+    /**
+     * Returns this deck and every variant decoded from it so far.
+     *
+     * @return The decks sharing this deck's faces
+     */
+    public synchronized Collection<CardDeck> withVariants() {
+        List<CardDeck> decks = new ArrayList<>();
+        decks.add(this);
+        for (CompletableFuture<CardDeck> variant : variants.values()) {
+            if (variant.isDone() && !variant.isCompletedExceptionally()) { // Skip variants still being decoded
+                decks.add(variant.join());
+            }
+        }
+        return decks;
+    }
+
+    // Remembers how to decode this deck at other sizes
+    CardDeck withSource(IntFunction<CardDeck> source) {
+        this.source = source;
+        return this;
+    }
+
+    /**
+     * Returns the default deck, loading it on first use. The deck is read from cardimages.zip in the
+     * working directory, or from the copy of cardimages.zip packaged with the game when there is none.
+     *
+     * @return The default CardDeck
+     */
+    public static synchronized CardDeck getDefault() {
+        if (defaultDeck == null) {
+            File zip = new File(DEFAULT_DECK);
+            defaultDeck = zip.isFile() ? load(zip) : loadResource(DEFAULT_DECK);
+        }
+        return defaultDeck;
+    }
+
+    /**
+     * Replaces the default deck, so switching decks is a single load.
+     *
+     * @param deck The deck new games should use
+     */
+    public static synchronized void setDefault(CardDeck deck) {
+        defaultDeck = deck;
+    }
+
+    /**
+     * Loads a deck from a zip file, opening the file only once.
+     *
+     * @param file The zip file holding the deck
+     * @return The loaded CardDeck
+     */
+    public static CardDeck load(File file) {
+        return load(file, 0).withSource(size -> load(file, size));
+    }
+
+    // Loads a deck from a zip file with faces decoded to fit the given size, or at full size for 0
+    private static CardDeck load(File file, int size) {
+        try (ZipFile zip = new ZipFile(file)) {
+            ZipEntry index = zip.getEntry(INDEX_ENTRY);
+            if (index != null) {
+                return loadPacked(file.getName(), zip, index, size);
+            }
+
+            // Collect the image_N.png entries ordered by N
+            TreeMap<Integer, ZipEntry> faces = new TreeMap<>();
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                int id = faceId(entry.getName());
+                if (id >= 0) {
+                    faces.put(id, entry);
+                }
+            }
+
+            List<Image> images = new ArrayList<>();
+            for (ZipEntry entry : faces.values()) {
+                try (InputStream in = zip.getInputStream(entry)) {
+                    images.add(decodeImage(entry.getName(), () -> new Image(in, size, size, true, true)));
+                }
+            }
+            return pack(file.getName(), images);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load deck " + file, e);
+        }
+    }
+
+    /**
+     * Loads a theme pack: a folder of image_N.png faces and an optional back.png.
+     *
+     * @param dir The folder of the theme pack
+     * @return The loaded CardDeck
+     */
+    public static CardDeck loadDirectory(Path dir) {
+        return loadDirectory(dir, 0).withSource(size -> loadDirectory(dir, size));
+    }
+
+    // Loads a theme pack with faces and back decoded to fit the given size, or at full size for 0
+    private static CardDeck loadDirectory(Path dir, int size) {
+        TreeMap<Integer, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir, "image_*.png")) {
+            for (Path file : entries) {
+                int id = faceId(file.getFileName().toString());
+                if (id >= 0) {
+                    files.put(id, file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load theme " + dir, e);
+        }
+
+        List<Image> images = new ArrayList<>();
+        for (Path file : files.values()) {
+            images.add(decodeFile(file, size, size, true));
+        }
+        CardDeck deck = pack(dir.getFileName().toString(), images);
+        Path backFile = dir.resolve(BACK_FILE);
+        if (Files.isRegularFile(backFile)) {
+            deck.putBack(decodeFile(backFile, size, size, true));
+        }
+        return deck;
+    }
+
+    // Decodes an image file, 0 for the width and height keeps its own size
+    private static Image decodeFile(Path file, double width, double height, boolean preserveRatio) {
+        return decodeImage(file.toString(),
+                () -> new Image(file.toUri().toString(), width, height, preserveRatio, true));
+    }
+
+    /**
+     * Decodes a face image to the size of a face of this deck. Safe to call off the FX thread.
+     *
+     * @param faceId The face the image replaces, or BACK for the card back
+     * @param file   The image file
+     * @return The decoded image, which may be in an error state if the file could not be read
+     */
+    public Image decodeFace(int faceId, Path file) {
+        if (faceId == BACK) {
+            double size = back != null ? Math.max(back.getWidth(), back.getHeight()) : getFaceSize();
+            return decodeFile(file, size, size, true);
+        }
+        Rectangle2D region = regions[faceId];
+        return decodeFile(file, region.getWidth(), region.getHeight(), false); // Fill the region exactly
+    }
+
+    /**
+     * Copies a decoded face over its region of the atlas, so every card showing it changes in place.
+     * Call it on the FX thread.
+     *
+     * @param faceId The face to replace, or BACK for the card back
+     * @param image  The face decoded by decodeFace
+     * @return true if the face was replaced, false if this deck cannot be changed
+     */
+    public boolean putFace(int faceId, Image image) {
+        if (faceId == BACK) {
+            putBack(image);
+            return true;
+        }
+        if (!(atlas instanceof WritableImage) || faceId < 0 || faceId >= regions.length) {
+            return false; // Prepacked atlases are decoded read-only
+        }
+        Rectangle2D region = regions[faceId];
+        int width = (int) Math.min(region.getWidth(), image.getWidth());
+        int height = (int) Math.min(region.getHeight(), image.getHeight());
+        ((WritableImage) atlas).getPixelWriter().setPixels((int) region.getMinX(), (int) region.getMinY(),
+                width, height, image.getPixelReader(), 0, 0);
+        return true;
+    }
+
+    // Copies an image into the card back, replacing the back image when its size changes
+    private void putBack(Image image) {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        if (back == null || back.getWidth() != width || back.getHeight() != height) {
+            back = new WritableImage(Math.max(1, width), Math.max(1, height));
+        }
+        back.getPixelWriter().setPixels(0, 0, width, height, image.getPixelReader(), 0, 0);
+        backPaint = new ImagePattern(back); // New paint, so cards pick the change up when they set it again
+    }
+
+    /**
+     * Loads a deck from a zip of image_N.png faces on the class path. Every face in the zip is used.
+     *
+     * @param name The resource name of the zip
+     * @return The loaded CardDeck
+     */
+    public static CardDeck loadResource(String name) {
+        return loadResource(name, 0).withSource(size -> loadResource(name, size));
+    }
+
+    // Loads a zip resource with faces decoded to fit the given size, or at full size for 0
+    private static CardDeck loadResource(String name, int size) {
+        InputStream resource = CardDeck.class.getClassLoader().getResourceAsStream(name);
+        if (resource == null) {
+            throw new UncheckedIOException(new FileNotFoundException("No deck resource " + name));
+        }
+        TreeMap<Integer, Image> faces = new TreeMap<>(); // Entries can come in any order, sorted by N
+        try (ZipInputStream zip = new ZipInputStream(resource)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                int id = faceId(entry.getName());
+                if (id >= 0) {
+                    byte[] bytes = zip.readAllBytes(); // Only this entry, the image must not close the zip
+                    faces.put(id, decodeImage(entry.getName(),
+                            () -> new Image(new ByteArrayInputStream(bytes), size, size, true, true)));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load deck " + name, e);
+        }
+        return pack(name, new ArrayList<>(faces.values()));
+    }
+
+    /**
+     * Packs separate face images into one atlas laid out as a square-ish grid of equal cells.
+     *
+     * @param name   The name of the deck
+     * @param images The face images in face id order
+     * @return A CardDeck backed by the new atlas
+     */
+    public static CardDeck pack(String name, List<Image> images) {
+        int cellWidth = 1;
+        int cellHeight = 1;
+        for (Image image : images) {
+            cellWidth = Math.max(cellWidth, (int) image.getWidth());
+            cellHeight = Math.max(cellHeight, (int) image.getHeight());
+        }
+
+        int columns = (int) Math.ceil(Math.sqrt(images.size()));
+        int rows = Math.max(1, (images.size() + columns - 1) / Math.max(1, columns));
+        WritableImage atlas = new WritableImage(Math.max(1, columns) * cellWidth, rows * cellHeight);
+        PixelWriter writer = atlas.getPixelWriter();
+        Rectangle2D[] regions = new Rectangle2D[images.size()];
+
+        for (int i = 0; i < images.size(); i++) {
+            Image image = images.get(i);
+            int x = (i % columns) * cellWidth;
+            int y = (i / columns) * cellHeight;
+            int w = (int) image.getWidth();
+            int h = (int) image.getHeight();
+            writer.setPixels(x, y, w, h, image.getPixelReader(), 0, 0); // Copy the face into its cell
+            regions[i] = new Rectangle2D(x, y, w, h);
+        }
+        return new CardDeck(name, atlas, regions);
+    }
+
+    // Reads a prepacked deck: one atlas.png and a deck.txt index with "id x y width height" per line.
+    // With a size above 0, the atlas is decoded scaled so its largest face fits that size.
+    private static CardDeck loadPacked(String name, ZipFile zip, ZipEntry index, int size) throws IOException {
+        TreeMap<Integer, Rectangle2D> byId = new TreeMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(zip.getInputStream(index), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue; // Skip blank lines and comments
+                }
+                String[] parts = line.split("\\s+");
+                byId.put(Integer.parseInt(parts[0]), new Rectangle2D(
+                        Double.parseDouble(parts[1]), Double.parseDouble(parts[2]),
+                        Double.parseDouble(parts[3]), Double.parseDouble(parts[4])));
+            }
+        }
+
+        ZipEntry atlasEntry = zip.getEntry(ATLAS_ENTRY);
+        if (atlasEntry == null) {
+            throw new IOException(INDEX_ENTRY + " found without " + ATLAS_ENTRY);
+        }
+        Rectangle2D[] regions = byId.values().toArray(new Rectangle2D[0]);
+        double atlasWidth = 0;
+        double atlasHeight = 0;
+        double faceSize = 0;
+        for (Rectangle2D region : regions) {
+            atlasWidth = Math.max(atlasWidth, region.getMaxX());
+            atlasHeight = Math.max(atlasHeight, region.getMaxY());
+            faceSize = Math.max(faceSize, Math.max(region.getWidth(), region.getHeight()));
+        }
+        double scale = size > 0 && size < faceSize ? size / faceSize : 1;
+        double width = scale < 1 ? Math.ceil(atlasWidth * scale) : 0; // 0 decodes at full size
+        double height = scale < 1 ? Math.ceil(atlasHeight * scale) : 0;
+
+        Image atlas;
+        try (InputStream in = zip.getInputStream(atlasEntry)) {
+            atlas = decodeImage(ATLAS_ENTRY, () -> new Image(in, width, height, false, true));
+        }
+        if (scale < 1) {
+            double sx = atlas.getWidth() / atlasWidth; // Scale actually used by the decoder
+            double sy = atlas.getHeight() / atlasHeight;
+            for (int i = 0; i < regions.length; i++) {
+                Rectangle2D r = regions[i];
+                regions[i] = new Rectangle2D(r.getMinX() * sx, r.getMinY() * sy, r.getWidth() * sx, r.getHeight() * sy);
+            }
+        }
+        return new CardDeck(name, atlas, regions);
+    }
+
+    /**
+     * Decodes an image, recording how long it took in the shared Metrics and as a JFR event.
+     *
+     * @param source Where the image comes from, for the event
+     * @param loader Decodes the image
+     * @return The decoded Image
+     */
+    static Image decodeImage(String source, Supplier<Image> loader) {
+        GameEvents.ImageDecode event = new GameEvents.ImageDecode();
+        event.begin();
+        long start = System.nanoTime();
+        Image image = loader.get();
+        Metrics.getShared().record(Metrics.DECODE, System.nanoTime() - start);
+        event.source = source;
+        event.commit();
+        return image;
+    }
+
+    // Returns N for an entry called image_N.png, or -1 for any other entry
+    static int faceId(String entryName) {
+        String base = entryName.substring(entryName.lastIndexOf('/') + 1);
+        if (!base.startsWith("image_") || !base.endsWith(".png")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(base.substring(6, base.length() - 4));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Getters for the deck contents
+
+    public String getName() {
+        return name;
+    }
+
+    public Image getAtlas() {
+        return atlas;
+    }
+
+    // Card back image, or null for the plain red back
+    public Image getBack() {
+        return back;
+    }
+
+    // Fill for the back of a card, the back image or plain red
+    public Paint getBackPaint() {
+        return backPaint;
+    }
+
+    public Rectangle2D getRegion(int faceId) {
+        return regions[faceId];
+    }
+
+    public int getFaceCount() {
+        return regions.length;
+    }
+
+    // Unique key for a face of this deck, used to tell faces apart when matching cards
+    public String getFaceKey(int faceId) {
+        return name + "#" + faceId;
+    }
+}
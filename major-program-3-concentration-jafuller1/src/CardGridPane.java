@@ -1,19 +1,29 @@
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
 import javafx.geometry.Pos;
 import javafx.scene.layout.GridPane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 
-import java.sql.SQLOutput;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.IntConsumer;
 
 /**
  * CardGridPane is a class that manages a grid of Card objects, including their initialization,
  * placement, and image assignment for a card-matching game.
  */
-public class CardGridPane extends GridPane {
+public class CardGridPane extends GridPane implements BoardView {
     private Card[][] cards; // A 2D array to store the cards in the grid
-    private ArrayList<String> cardList; // A list to store paths to card images
+    private ArrayList<Integer> cardList; // A list to store the face ids of the cards to deal
+    private CardDeck deck; // Deck whose atlas holds all card faces
+    private CardDeck faces; // Variant of the deck decoded at the size the cards are drawn at
+    private Executor decoder = Runnable::run; // Decodes deck variants the cards are not drawn at yet
+    private Board board; // Board model the cards are showing
+    private Random random; // Shuffles the face list, seeded so a layout can be reproduced
 
     private int MAXROWS; // Maximum number of rows in the grid
     private int MAXCOLS; // Maximum number of columns in the grid
@@ -22,6 +32,10 @@ public class CardGridPane extends GridPane {
 
     private int cardSize; // Size of each card
 
+    private IntConsumer onCardPressed; // Called with the board index of a pressed card
+    private IntConsumer onCardShown; // Called with the board index of a card whose flip shows its new side
+    private final PressFilter pressFilter = new PressFilter(); // Drops repeated presses
+
     // Default constructor initializes the card grid with a default card size
     public CardGridPane() {
         this(64); // Default card size is 64
@@ -34,20 +48,56 @@ public class CardGridPane extends GridPane {
         this.MAXROWS = 8; // Set the grid's maximum row size
         this.setCards(new Card[MAXROWS][MAXCOLS]); // Create a 2D array to store cards
         this.cardList = new ArrayList<>(); // Initialize the card image list
+        this.random = new Random();
+        // Cards are created the first time a level uses their cell, so startup only builds the first level's
+
+        // Switch to faces decoded for the new pixel size when the window moves to a screen with another scale
+        sceneProperty().addListener((obs, oldScene, scene) -> {
+            if (scene != null) {
+                scene.windowProperty().addListener((o, oldWindow, window) -> {
+                    if (window != null) {
+                        window.outputScaleXProperty().addListener((w, oldScale, scale) -> updateFaces());
+                    }
+                });
+            }
+        });
 
-        // Populate the grid with Card objects
-        for (int row = 0; row < MAXROWS; row++) {
-            for (int col = 0; col < MAXCOLS; col++) {
-                Card card = new Card(); // Create a new Card object
-                card.setCardAndImageSize(cardSize, cardSize); // Set card size
-                getCards()[row][col] = card; // Add card to the grid array
-                this.add(card, col, row); // Add card to the GridPane at the specified position
+        // One handler for the whole grid maps each press to a card, instead of a listener per card
+        setOnMousePressed(e -> {
+            if (!e.isSynthesized()) { // Touches are handled below
+                press(e.getX(), e.getY(), e.getClickCount());
             }
+        });
+        setOnTouchPressed(e -> {
+            press(e.getTouchPoint().getX(), e.getTouchPoint().getY(), 1);
+            e.consume();
+        });
+    }
+
+    // Passes a press at a position in the grid on to the game if it lands on an active card
+    private void press(double x, double y, int clickCount) {
+        if (board == null || onCardPressed == null) {
+            return;
+        }
+        // Every card has the same size, so the first card gives the cell size and where the grid starts.
+        // Layout bounds and position leave out the scale of a card that is flipping.
+        Card first = cards[0][0];
+        Bounds size = first.getLayoutBounds();
+        double cellWidth = size.getWidth() + getHgap();
+        double cellHeight = size.getHeight() + getVgap();
+        int col = (int) Math.floor((x - first.getLayoutX() - size.getMinX()) / cellWidth);
+        int row = (int) Math.floor((y - first.getLayoutY() - size.getMinY()) / cellHeight);
+        if (row < 0 || row >= currentRows || col < 0 || col >= currentCols) {
+            return; // Outside the active grid
+        }
+        int index = board.index(row, col);
+        if (pressFilter.accept(index, clickCount, System.nanoTime())) {
+            onCardPressed.accept(index);
         }
     }
 
     /**
-     * Assigns images to cards in the grid using the paths from the cardList.
+     * Assigns faces to cards in the grid using the face ids from the cardList.
      */
     public void setCardImages() {
         int index = 0; // Index to track position in cardList
@@ -57,7 +107,7 @@ public class CardGridPane extends GridPane {
                 // Ensure the card exists and can be set
                 if (cards != null && cards[row] != null && cards[row][col] != null) {
                     Card card = cards[row][col];
-                    card.setPath(getCardList().get(index)); // Assign image path to the card
+                    card.setFace(getDeck(), getCardList().get(index)); // Assign the face to the card
                     card.flipCard(); // Flip the card to show the image
                     index++;
                 } else {
@@ -68,10 +118,10 @@ public class CardGridPane extends GridPane {
     }
 
     /**
-     * Randomly shuffles the card image paths in cardList.
+     * Randomly shuffles the face ids in cardList.
      */
     public void shuffleImages() {
-        Collections.shuffle(getCardList()); // Shuffle the card image paths
+        Collections.shuffle(getCardList(), random); // Shuffle the face ids
     }
 
     /**
@@ -92,56 +142,185 @@ public class CardGridPane extends GridPane {
      * @param cols The number of columns in the active game grid
      */
     public void initCards(int rows, int cols) {
-        currentRows = rows; // Set the current row count
-        currentCols = cols; // Set the current column count
+        applyLevel(LevelPreparer.build(rows, cols)); // Build the layout here and swap it in right away
+    }
 
-        // Initialize or reset all cards in the grid
+    /**
+     * Swaps a prepared layout into the grid in one pass, setting every card to the board's state and
+     * showing only the cards of the active grid. Cards are created for cells no earlier level has used. Call this on the
+     * FX thread so the whole board changes in one pulse.
+     *
+     * @param level The prepared layout to show
+     */
+    @Override
+    public void applyLevel(PreparedLevel level) {
+        currentRows = level.getRows(); // Set the current row count
+        currentCols = level.getCols(); // Set the current column count
+        deck = level.getDeck(); // Use the deck the layout was prepared with
+        faces = deck.forSize(getFacePixels()); // Faces decoded at the size they are drawn at
+        board = level.getBoard(); // Show this board from now on
+        pressFilter.reset();
+
+        // Reset all cards in the grid
         for (int r = 0; r < MAXROWS; r++) {
             for (int c = 0; c < MAXCOLS; c++) {
                 Card card = cards[r][c];
+                boolean active = r < currentRows && c < currentCols;
                 if (card == null) {
+                    if (!active) {
+                        continue; // Not needed until a bigger level
+                    }
                     card = new Card(); // Create a new card if not already initialized
                     card.setCardAndImageSize(cardSize, cardSize); // Set card size
+                    card.setGridPos(r, c); // Remember where the card sits
+                    int row = r;
+                    int col = c;
+                    card.setOnSideShown(() -> {
+                        if (onCardShown != null) {
+                            onCardShown.accept(board.index(row, col));
+                        }
+                    });
                     cards[r][c] = card; // Assign the card to the grid array
                     this.add(card, c, r); // Add card to GridPane
                 }
-                card.setFlipped(false); // Reset flipped state
-                card.setMatched(false); // Reset matched state
-                card.setDisable(true); // Disable by default
-                card.flipCard(); // Flip card to show the gray back
+                int index = board.index(r, c);
+                if (active) {
+                    card.setFace(faces, board.getFace(index)); // Assign the prepared face
+                }
+                card.setFlipped(active && board.isFaceUp(index)); // Face down, unless resuming a saved game
+                card.setMatched(active && board.isMatched(index));
+                card.setDisable(!active); // Enable only cards in the active grid
+                card.setVisible(active); // Cards left over from a bigger level take no space
+                card.setManaged(active);
+                card.flipCard(); // Flip card to show the back
             }
         }
+    }
+
+    /**
+     * Updates one card to show the state the board holds for it.
+     *
+     * @param index The board index of the card
+     */
+    @Override
+    public void refreshCard(int index) {
+        Card card = cards[board.rowOf(index)][board.colOf(index)];
+        card.setMatched(board.isMatched(index)); // Copy the matched state, matched cards turn green
+        boolean faceUp = board.isFaceUp(index); // Matched cards stay face up
+        if (faceUp != card.isFlipped()) {
+            card.setFlipped(faceUp);
+            card.animateFlip(); // Turn the card over to show the other side
+        }
+    }
+
+    // Size in pixels a card face is drawn at, taking the screen's scale into account
+    public int getFacePixels() {
+        double scale = getScene() != null && getScene().getWindow() != null
+                ? getScene().getWindow().getOutputScaleX() : 1;
+        return (int) Math.ceil(cardSize * scale);
+    }
+
+    /**
+     * Sets the executor that decodes the deck at a new pixel size, after a change of screen scale or deck.
+     * The cards keep their current faces until the decode is done.
+     *
+     * @param decoder Runs the decode off the FX thread
+     */
+    public void setDecoder(Executor decoder) {
+        this.decoder = decoder;
+    }
+
+    // Moves the active cards to the deck variant for the current pixel size, decoding it first if needed
+    private void updateFaces() {
+        if (board == null) {
+            return;
+        }
+        CardDeck wanted = deck;
+        int size = getFacePixels();
+        CompletableFuture<CardDeck> variant = deck.forSizeAsync(size, decoder);
+        if (variant.isDone() && !variant.isCompletedExceptionally()) {
+            showFaces(variant.join()); // Decoded already
+            return;
+        }
+        variant.whenComplete((decoded, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                System.out.println("Error: Could not decode the card faces: " + error.getMessage());
+            } else if (deck == wanted && size == getFacePixels()) { // Skip it if the deck or scale changed
+                showFaces(decoded);
+            }
+        }));
+    }
 
-        createCardImageList(rows * cols); // Create a list of card image paths
-        Collections.shuffle(cardList); // Shuffle the card images
+    // Moves the active cards to a deck variant
+    private void showFaces(CardDeck variant) {
+        if (variant == faces) {
+            return;
+        }
+        faces = variant;
+        for (int r = 0; r < currentRows; r++) {
+            for (int c = 0; c < currentCols; c++) {
+                Card card = cards[r][c];
+                card.setFace(faces, board.getFace(board.index(r, c)));
+                card.refreshBack();
+            }
+        }
+    }
 
-        setCardImages(); // Assign images to cards
+    /**
+     * Shows the current board with another deck, reusing every card node.
+     *
+     * @param deck The deck to draw the cards with
+     */
+    @Override
+    public void switchDeck(CardDeck deck) {
+        this.deck = deck;
+        this.faces = null; // Forces updateFaces to move every card over
+        updateFaces();
+    }
 
-        // Enable only the relevant cards
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                cards[r][c].setDisable(false); // Enable cards in the active grid
+    /**
+     * Repaints card backs after the back image changed. Faces need nothing, the cards show the atlas the
+     * new face was copied into.
+     *
+     * @param faceId The face that changed, or CardDeck.BACK for the card back
+     */
+    @Override
+    public void faceChanged(int faceId) {
+        if (faceId != CardDeck.BACK || board == null) {
+            return;
+        }
+        for (int r = 0; r < currentRows; r++) {
+            for (int c = 0; c < currentCols; c++) {
+                cards[r][c].refreshBack(); // The back has a new paint
             }
         }
     }
 
+    @Override
+    public void setOnCardPressed(IntConsumer onCardPressed) {
+        this.onCardPressed = onCardPressed;
+    }
+
+    @Override
+    public void setOnCardShown(IntConsumer onCardShown) {
+        this.onCardShown = onCardShown;
+    }
+
     /**
-     * Creates a list of card image paths for the game based on the grid size.
+     * Creates a list of face ids for the game based on the grid size.
      *
      * @param size The total number of cards required for the game
      */
     public void createCardImageList(int size) {
         cardList.clear(); // Clear any previous data
-        int counter = 0;
 
-        // Generate pairs of card image paths
-        for (int i = 0; i < size / 2; i++) {
-            cardList.add("cardimages/image_" + counter + ".png");
-            cardList.add("cardimages/image_" + counter + ".png");
-            counter++;
+        // Generate pairs of face ids
+        for (int faceId = 0; faceId < size / 2; faceId++) {
+            cardList.add(faceId);
+            cardList.add(faceId);
         }
 
-        shuffleImages(); // Shuffle the card image paths
+        shuffleImages(); // Shuffle the face ids
     }
 
     // Getter and setter methods for class variables...
@@ -194,11 +373,31 @@ public class CardGridPane extends GridPane {
         this.cards = cards;
     }
 
-    public ArrayList<String> getCardList() {
+    public ArrayList<Integer> getCardList() {
         return cardList;
     }
 
-    public void setCardList(ArrayList<String> cardList) {
+    public void setCardList(ArrayList<Integer> cardList) {
         this.cardList = cardList;
     }
+
+    public CardDeck getDeck() {
+        if (deck == null) {
+            deck = CardDeck.getDefault(); // Load the default deck on first use
+        }
+        return deck;
+    }
+
+    public void setDeck(CardDeck deck) {
+        this.deck = deck;
+    }
+
+    // Reseeds the shuffle so the next face list comes out the same for the same seed
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    public Board getBoard() {
+        return board;
+    }
 }
@@ -0,0 +1,147 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * GameClient talks to a GameServer over one blocking socket. Each call sends one message from GameProtocol
+ * and waits for its reply. The client reuses its buffers and reply object, so a game played through it
+ * creates no garbage per move.
+ */
+public class GameClient implements AutoCloseable {
+    private final SocketChannel channel; // Connection to the server
+    private final ByteBuffer out = ByteBuffer.allocate(16); // Message being sent
+    private final ByteBuffer in = ByteBuffer.allocate(16); // Reply being read
+    private final FlipReply reply = new FlipReply(); // Reused for every flip
+
+    /**
+     * FlipReply is the server's answer to a flip. The same object is filled in by every call to flip.
+     */
+    public static final class FlipReply {
+        private int result; // GameEngine.IGNORED, FIRST or SECOND
+        private int face; // Face of the flipped card
+        private int outcome; // GameEngine.NONE, MATCH or MISMATCH
+        private int turnCount; // Turns played so far
+        private boolean complete; // Whether every pair is matched
+
+        public int getResult() {
+            return result;
+        }
+
+        public int getFace() {
+            return face;
+        }
+
+        public int getOutcome() {
+            return outcome;
+        }
+
+        public int getTurnCount() {
+            return turnCount;
+        }
+
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+    // Constructor that connects to a server
+    public GameClient(String host, int port) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+    }
+
+    /**
+     * Connects to a server given as "host:port" or just "host" for the default port.
+     *
+     * @param address The server address
+     * @return The connected client
+     */
+    public static GameClient connect(String address) throws IOException {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) {
+            return new GameClient(address, GameProtocol.DEFAULT_PORT);
+        }
+        return new GameClient(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    /**
+     * Starts a new game on the server.
+     *
+     * @param rows      The number of rows
+     * @param cols      The number of columns
+     * @param faceCount The number of faces in the client's deck
+     * @return The seed the server dealt the board with
+     */
+    public synchronized long newGame(int rows, int cols, int faceCount) throws IOException {
+        out.clear();
+        out.put(GameProtocol.NEW_GAME).put((byte) rows).put((byte) cols).putShort((short) faceCount);
+        send();
+        byte type = receive();
+        if (type != GameProtocol.STARTED) {
+            throw new IOException("Server refused the game");
+        }
+        return in.getLong();
+    }
+
+    /**
+     * Flips a card on the server. The turn is resolved by the server as soon as its second card is flipped.
+     *
+     * @param index The index of the card
+     * @return The server's reply, valid until the next call
+     */
+    public synchronized FlipReply flip(int index) throws IOException {
+        out.clear();
+        out.put(GameProtocol.FLIP).putShort((short) index);
+        send();
+        byte type = receive();
+        if (type != GameProtocol.FLIPPED) {
+            throw new IOException("Server rejected the flip");
+        }
+        reply.result = in.get();
+        reply.face = in.getShort() & 0xFFFF;
+        reply.outcome = in.get();
+        reply.turnCount = in.getInt();
+        reply.complete = in.get() != 0;
+        return reply;
+    }
+
+    // Writes the message in the output buffer
+    private void send() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+    }
+
+    // Reads one whole reply and returns its type, leaving the buffer positioned after the type byte
+    private byte receive() throws IOException {
+        in.clear();
+        in.limit(1);
+        readFully();
+        byte type = in.get(0);
+        int size = GameProtocol.sizeOf(type);
+        if (size < 0) {
+            throw new IOException("Unknown reply " + type);
+        }
+        in.limit(size);
+        readFully();
+        in.flip();
+        in.get(); // Skip the type byte
+        return type;
+    }
+
+    private void readFully() throws IOException {
+        while (in.hasRemaining()) {
+            if (channel.read(in) < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
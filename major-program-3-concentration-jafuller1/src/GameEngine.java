@@ -0,0 +1,147 @@
+/**
+ * GameEngine holds the rules of Concentration on top of a Board: flipping cards, resolving a turn once two
+ * cards are face up, counting turns and tracking when every pair has been matched. It uses no JavaFX
+ * classes and creates no objects while a game is played, so it can run headless.
+ */
+public class GameEngine {
+    // Results of flip
+    public static final int IGNORED = 0; // The card could not be flipped
+    public static final int FIRST = 1; // The card is the first of a turn
+    public static final int SECOND = 2; // The card is the second of a turn, which now needs resolving
+
+    // Results of resolveTurn
+    public static final int NONE = 0; // No turn was waiting to be resolved
+    public static final int MATCH = 1; // The two cards matched
+    public static final int MISMATCH = 2; // The two cards did not match and were turned back down
+
+    private Board board; // Board being played
+    private int firstIndex = -1; // First card flipped this turn, or -1
+    private int secondIndex = -1; // Second card flipped this turn, or -1
+    private int turnCount; // Number of resolved turns
+    private int matchedPairs; // Number of pairs matched so far
+    private int pairsNeeded; // Number of pairs on the board
+
+    /**
+     * Starts a new game on a board, turning all of its cards face down.
+     *
+     * @param board The board to play
+     */
+    public void newGame(Board board) {
+        this.board = board;
+        board.reset();
+        firstIndex = -1;
+        secondIndex = -1;
+        turnCount = 0;
+        matchedPairs = 0;
+        pairsNeeded = board.size() / 2;
+    }
+
+    /**
+     * Continues a saved game on the board of the current game, whose matched cards have been set again.
+     *
+     * @param turnCount   The number of turns already played
+     * @param firstIndex  The first card of the pending turn, or -1
+     * @param secondIndex The second card of the pending turn, or -1
+     */
+    public void resume(int turnCount, int firstIndex, int secondIndex) {
+        this.turnCount = turnCount;
+        this.firstIndex = firstIndex;
+        this.secondIndex = firstIndex >= 0 ? secondIndex : -1;
+        matchedPairs = 0;
+        for (int i = 0; i < board.size(); i++) {
+            if (board.isMatched(i)) {
+                matchedPairs++;
+            }
+        }
+        matchedPairs /= 2;
+        if (this.firstIndex >= 0) {
+            board.setFlipped(this.firstIndex, true);
+        }
+        if (this.secondIndex >= 0) {
+            board.setFlipped(this.secondIndex, true);
+        }
+    }
+
+    /**
+     * Flips a card face up if the rules allow it.
+     *
+     * @param index The index of the card
+     * @return FIRST or SECOND if the card was flipped, IGNORED if it is already face up or a turn is
+     * waiting to be resolved
+     */
+    public int flip(int index) {
+        if (index < 0 || index >= board.size() || board.isFaceUp(index) || secondIndex >= 0) {
+            return IGNORED;
+        }
+
+        board.setFlipped(index, true);
+        if (firstIndex < 0) {
+            firstIndex = index;
+            return FIRST;
+        }
+        secondIndex = index;
+        return SECOND;
+    }
+
+    /**
+     * Resolves the turn once two cards are face up: matching cards stay face up, other cards are turned
+     * back down, and the turn counter goes up by one.
+     *
+     * @return MATCH or MISMATCH, or NONE if two cards are not face up yet
+     */
+    public int resolveTurn() {
+        if (secondIndex < 0) {
+            return NONE;
+        }
+
+        int first = firstIndex;
+        int second = secondIndex;
+        firstIndex = -1;
+        secondIndex = -1;
+        turnCount++;
+        board.setFlipped(first, false);
+        board.setFlipped(second, false);
+
+        if (board.getFace(first) == board.getFace(second)) {
+            board.setMatched(first, true);
+            board.setMatched(second, true);
+            matchedPairs++;
+            return MATCH;
+        }
+        return MISMATCH;
+    }
+
+    // True once every pair on the board has been matched
+    public boolean isComplete() {
+        return matchedPairs == pairsNeeded;
+    }
+
+    // True while two cards are face up and waiting for resolveTurn
+    public boolean isTurnPending() {
+        return secondIndex >= 0;
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    public int getFirstIndex() {
+        return firstIndex;
+    }
+
+    public int getSecondIndex() {
+        return secondIndex;
+    }
+
+    public int getTurnCount() {
+        return turnCount;
+    }
+
+    public int getMatchedPairs() {
+        return matchedPairs;
+    }
+
+    public int getPairsNeeded() {
+        return pairsNeeded;
+    }
+}
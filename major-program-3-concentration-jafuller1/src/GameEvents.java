@@ -0,0 +1,72 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * GameEvents holds the custom Java Flight Recorder events of the game. They cost almost nothing unless a
+ * recording is running, for example one started with -XX:StartFlightRecording, and then show up in JDK
+ * Mission Control under the "Concentration" category. Each event's duration is the time being measured.
+ */
+public final class GameEvents {
+    private GameEvents() {
+    }
+
+    @Name("concentration.Flip")
+    @Label("Card Flip")
+    @Description("Mouse press until the flipped card shows its face")
+    @Category("Concentration")
+    @StackTrace(false)
+    public static class Flip extends Event {
+        @Label("Card Index")
+        public int index;
+    }
+
+    @Name("concentration.InitCards")
+    @Label("Init Cards")
+    @Description("Swapping a prepared level into the board")
+    @Category("Concentration")
+    @StackTrace(false)
+    public static class InitCards extends Event {
+        @Label("Level")
+        public String level;
+
+        @Label("Cards")
+        public int cards;
+
+        @Label("Prepare Time")
+        @Timespan(Timespan.NANOSECONDS)
+        public long prepareNanos;
+    }
+
+    @Name("concentration.ImageDecode")
+    @Label("Image Decode")
+    @Description("Decoding a card image or deck atlas")
+    @Category("Concentration")
+    @StackTrace(false)
+    public static class ImageDecode extends Event {
+        @Label("Source")
+        public String source;
+    }
+
+    @Name("concentration.SoundStart")
+    @Label("Sound Start")
+    @Description("Asking for a sound effect until its clip starts playing")
+    @Category("Concentration")
+    @StackTrace(false)
+    public static class SoundStart extends Event {
+        @Label("Effect")
+        public String effect;
+    }
+
+    @Name("concentration.Pulse")
+    @Label("FX Pulse")
+    @Description("CSS and layout work of one JavaFX pulse")
+    @Category("Concentration")
+    @StackTrace(false)
+    public static class Pulse extends Event {
+    }
+}
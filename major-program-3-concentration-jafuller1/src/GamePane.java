@@ -1,43 +1,99 @@
 import javafx.animation.Animation;
-import javafx.animation.AnimationTimer;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
-import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ScrollPane;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
-import javafx.scene.layout.Region;
+import javafx.scene.layout.StackPane;
+import javafx.util.Duration;
 
-import javax.sound.sampled.*;
 import java.io.File;
 import java.io.IOException;
-import java.util.Locale;
-
-import static com.sun.media.jfxmedia.logging.Logger.setLevel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * GamePane is the main panel for the card-matching game, handling game initialization,
  * user interaction, and level selection.
  */
 public class GamePane extends BorderPane {
+    private static final String MATCH_SOUND = "match"; // Name of the sound played on a match
+    private static final String MATCH_SOUND_FILE = "WHAT OH HELL NAH - Angry Grandpa Clip.wav";
+    private static final long TURN_DELAY_MILLIS = 800; // How long both cards of a turn stay face up
+    private static final String CLASSIC_THEME = "Classic"; // Theme name of the deck shipped with the game
+    private static final long AUTOPLAY_MILLIS = 400; // Pause between the cards autoplay flips
 
     private int rows, cols; // Number of rows and columns in the game grid
-    private int numClicks; // Tracks the number of cards clicked
-    private int numMatched; // Tracks the number of matched pairs
+    private GameEngine engine; // Game rules and state, this pane only displays them
+    private GameEngine localEngine; // Engine used for local games and replays
+    private RemoteGameEngine remoteEngine; // Engine for games hosted by a server (-Dserver=host:port), or null
     private CardGridPane cardGridPane; // GridPane for the card grid
+    private CanvasBoardView canvasView; // Single canvas used for marathon boards
+    private ScrollPane canvasScroll; // Scrolls the canvas when its cards at the smallest size do not fit
+    private BoardView boardView; // The view showing the current board
+    private boolean canvasOnly; // Draw every level on the canvas (-Drenderer=canvas)
     private HBox commandPane; // HBox for control buttons and UI components
 
     private Button exitButton; // Button to exit the game
     private Button newGameButton; // Button to start a new game
+    private CheckBox fastPlayBox; // Lets a new turn start while mismatched cards are still face up
+    private Button hintButton; // Button that suggests the next card
+    private CheckBox autoplayBox; // Lets the solver play the game
 
     private ComboBox<String> lvlSelector; // Dropdown for level selection
-    private Card clickedCardOne, clickedCardTwo; // References to the two clicked cards
+    private ComboBox<String> themeSelector; // Dropdown for the theme pack
+    private Path themesDir; // Folder holding a folder per theme pack (-Dthemes.dir)
+    private volatile CardDeck classicDeck; // Deck shipped with the game, once another theme was chosen
+    private ThemeWatcher themeWatcher; // Reloads faces of the theme in use when they change on disk
 
     private Label turnLabel; // Label to display the number of turns
-    private int turnCount = 0; // Counter for the number of turns taken
+    private Label hintLabel; // Label showing the suggested card
+    private Label statsLabel; // Overlay with live timings (-Dmetrics.overlay=true)
+
+    private LevelPreparer levelPreparer; // Builds level layouts off the FX thread
+    private CompletableFuture<PreparedLevel> pendingLevel; // Layout requested most recently
+    private Level currentLevel; // Level of the board being shown
+    private SoundEngine soundEngine; // Plays the sound effects
+    private GameScheduler scheduler; // Runs delayed events such as turning cards back over
+    private GameScheduler.Task pendingResolve; // Scheduled check of the current turn
+    private GameScheduler.Task autoplayTask; // Next autoplay move, or null
+    private String replayDir; // Folder games are recorded to (-Dreplay.dir), or null to not record
+    private MoveLog moveLog; // Log of the game being recorded
+    private boolean replaying; // Whether the current game is a replay
+    private SpectatorFeed spectators; // Broadcasts the current game to viewers
+    private Solver.Advisor advisor; // Remembers the shown cards and suggests moves
+    private ScoreStore scoreStore; // Log of finished games (-Dscores.file), or null if it could not be opened
+    private SnapshotWriter snapshotWriter; // Saves the game in progress after every turn (-Dsnapshot.file)
+    private GameSnapshot resumeFrom; // Saved game the next layout continues, or null for a new game
+    private long gameSeed; // Seed of the current game's layout
+    private int gameFaceCount; // Faces in the deck the current layout was dealt from
+    private CardDeck gameDeck; // Deck the current board is drawn with, or null before the first level
+    private Consumer<CardDeck> onDeckChanged = deck -> { }; // Told when the board is drawn with another deck
+    private long gameStart; // When the current game started, from System.nanoTime()
+    private boolean assisted; // Whether Hint or Autoplay helped with the current game, so it is not scored
+    private Metrics metrics; // Timers for the instrumented steps
+    private GameEvents.Flip[] pendingFlips = new GameEvents.Flip[0]; // Flips not showing their face yet, by card
+    private long[] pendingFlipStarts = new long[0]; // When each pending flip's mouse press was handled
+    private long pulseStart; // When the current pulse's layout began
+    private GameEvents.Pulse pulseEvent; // JFR event of the current pulse
+    private boolean startupPending = true; // Whether the first interactive frame is still to come
+    private boolean levelShown; // Whether a level has been swapped in yet
 
     // Default constructor for GamePane
     public GamePane() {
@@ -46,198 +102,716 @@ public class GamePane extends BorderPane {
 
     // Constructor that accepts cardSize and initializes the game components
     public GamePane(int cardSize) {
-        // Initialize the CardGridPane with the specified card size
+        // Initialize the game engine and the CardGridPane that shows its board
+        localEngine = new GameEngine();
+        engine = localEngine;
+        connect(System.getProperty("server"));
+        scheduler = new GameScheduler();
+        spectators = new SpectatorFeed(flush -> scheduler.schedule(0, flush)); // Flush once per scheduler tick
         cardGridPane = new CardGridPane(cardSize);
+        boardView = cardGridPane;
+        cardGridPane.setOnCardPressed(this::cardPressed); // One handler for the whole grid
+        cardGridPane.setOnCardShown(this::cardShown);
+
+        // Boards bigger than the card grid are drawn on a canvas of the same overall size
+        canvasView = new CanvasBoardView(cardSize, cardGridPane.getMAXCOLS() * cardSize);
+        canvasView.setOnCardPressed(this::cardPressed);
+        canvasView.setOnCardShown(this::cardShown);
+        StackPane canvasHolder = new StackPane(canvasView); // Keeps boards that fit centered
+        canvasScroll = new ScrollPane(canvasHolder);
+        canvasScroll.setFitToWidth(true); // Fills the viewport until the canvas is bigger than it
+        canvasScroll.setFitToHeight(true);
+        canvasScroll.setStyle("-fx-background-color: transparent;");
+        canvasOnly = "canvas".equals(System.getProperty("renderer"));
+        replayDir = System.getProperty("replay.dir");
+
+        // Every finished game is saved to the score log
+        try {
+            scoreStore = ScoreStore.open(Paths.get(System.getProperty("scores.file", ScoreStore.DEFAULT_FILE)));
+        } catch (IOException e) {
+            System.out.println("Error: Could not open the score log: " + e.getMessage());
+        }
+
+        // The game in progress is saved after every turn and picked up again on the next start
+        snapshotWriter = new SnapshotWriter(Paths.get(System.getProperty("snapshot.file",
+                SnapshotWriter.DEFAULT_FILE)));
+
+        // Decode the match sound once so every match reuses it, in the background so the window opens first
+        soundEngine = new SoundEngine();
+        CompletableFuture.runAsync(() ->
+                soundEngine.load(MATCH_SOUND, new File(MATCH_SOUND_FILE), SoundEngine.DEFAULT_POOL_SIZE));
 
         // Create an exit button and set its action
         exitButton = new Button("Exit");
         exitButton.setOnAction(e -> System.exit(0)); // Closes the application
 
         // Create the turn label to display the number of turns
-        turnLabel = new Label("Turns: " + turnCount);
+        turnLabel = new Label("Turns: 0");
+
+        // Time every pulse and flip once the pane is shown
+        metrics = Metrics.getShared();
+        sceneProperty().addListener((obs, oldScene, scene) -> {
+            if (scene != null) {
+                scene.addPreLayoutPulseListener(this::pulseStarted);
+                scene.addPostLayoutPulseListener(this::pulseLaidOut);
+            }
+        });
 
         // Create a new game button and set its action
         newGameButton = new Button("New Game");
         newGameButton.setOnAction(e -> newGame()); // Starts a new game when clicked
 
+        // Create the fast play option
+        fastPlayBox = new CheckBox("Fast play");
+
+        // Create the hint button and the autoplay option, both driven by the solver
+        advisor = new Solver.Advisor();
+        hintLabel = new Label();
+        hintButton = new Button("Hint");
+        hintButton.setOnAction(e -> showHint());
+        autoplayBox = new CheckBox("Autoplay");
+        autoplayBox.setOnAction(e -> scheduleAutoplay());
+
         // Initialize the command pane for UI components
         commandPane = new HBox(10); // Horizontal box with 10px spacing
         commandPane.setAlignment(Pos.CENTER); // Center-align the components
 
         // Initialize the level selector (dropdown)
         lvlSelector = new ComboBox<>();
-        lvlSelector.getItems().addAll("Level 1", "Level 2", "Level 3", "Level 4", "Level 5", "Level 6");
-        lvlSelector.setValue("Level 1"); // Set default level
+        for (Level level : Level.values()) {
+            lvlSelector.getItems().add(level.getLabel());
+        }
+        lvlSelector.setValue(Level.first().getLabel()); // Set default level
 
-        // Set level selection action
-        lvlSelector.setOnAction(e -> {
-            String selected = lvlSelector.getValue(); // Get selected level
-            rows = 2; // Default rows
-            cols = 3; // Default columns
-
-            // Adjust rows and columns based on level
-            switch (selected) {
-                case "Level 2":
-                    rows = 2;
-                    cols = 4;
-                    break;
-                case "Level 3":
-                    rows = 4;
-                    cols = 4;
-                    break;
-                case "Level 4":
-                    rows = 4;
-                    cols = 6;
-                    break;
-                case "Level 5":
-                    rows = 6;
-                    cols = 6;
-                    break;
-                case "Level 6":
-                    rows = 8;
-                    cols = 8;
-                    break;
-            }
+        // Level layouts are built on a background thread
+        levelPreparer = new LevelPreparer(this::facePixels); // Faces are decoded at the size they are drawn at
+        levelPreparer.prefetchDeck(cardGridPane.getFacePixels()); // Decode the faces at the card size
+        cardGridPane.setDecoder(levelPreparer.getExecutor()); // Scale and deck changes decode in the background
 
-            // Refresh the card grid with new rows and columns
-            cardGridPane.initCards(rows, cols);
-            cardGridPane.createCardImageList(rows * cols);
-            cardGridPane.setCardImages();
-        });
+        // Set level selection action
+        lvlSelector.setOnAction(e -> newGame()); // Start a new game on the selected level
+
+        // Theme packs are the folders in the themes folder, and can be switched during a game
+        themesDir = Paths.get(System.getProperty("themes.dir", "themes"));
+        themeSelector = new ComboBox<>();
+        themeSelector.getItems().add(CLASSIC_THEME);
+        themeSelector.getItems().addAll(listThemes());
+        themeSelector.setValue(CLASSIC_THEME);
+        themeSelector.setOnAction(e -> switchTheme(themeSelector.getValue()));
+        try {
+            themeWatcher = new ThemeWatcher(faceId -> boardView.faceChanged(faceId));
+        } catch (IOException e) {
+            System.out.println("Error: Themes will not reload when changed: " + e.getMessage());
+        }
 
         // Add UI components to the command pane
-        commandPane.getChildren().addAll(lvlSelector, newGameButton, exitButton, turnLabel);
+        commandPane.getChildren().addAll(lvlSelector, themeSelector, newGameButton, fastPlayBox, hintButton, autoplayBox,
+                exitButton, turnLabel, hintLabel);
+        if (Boolean.getBoolean("metrics.overlay")) {
+            showStatsOverlay();
+        }
 
         // Set the layout of the GamePane
         setBottom(commandPane); // Command pane at the bottom
         setCenter(cardGridPane); // Card grid in the center
 
-        // Start a new game
-        newGame();
+        // Continue the saved game, or start a new one
+        if (!resume()) {
+            newGame();
+        }
+    }
 
-        // Register card listeners for user interaction
-        registerCardListeners();
+    // Names of the theme pack folders, sorted
+    private List<String> listThemes() {
+        List<String> names = new ArrayList<>();
+        if (!Files.isDirectory(themesDir)) {
+            return names;
+        }
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(themesDir, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                names.add(dir.getFileName().toString());
+            }
+        } catch (IOException e) {
+            System.out.println("Error: Could not list the themes: " + e.getMessage());
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    // Loads a theme pack in the background, then shows the current board with it
+    private void switchTheme(String name) {
+        Path dir = CLASSIC_THEME.equals(name) ? null : themesDir.resolve(name);
+        int facePixels = cardGridPane.getFacePixels();
+        CompletableFuture.supplyAsync(() -> {
+            if (classicDeck == null) {
+                classicDeck = CardDeck.getDefault(); // Still the shipped deck before the first switch
+            }
+            CardDeck deck = dir == null ? classicDeck : CardDeck.loadDirectory(dir);
+            deck.forSize(facePixels); // Decode the faces at the card size too
+            return deck;
+        }).whenComplete((deck, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                System.out.println("Error: Could not load theme " + name + ": " + error.getMessage());
+            } else {
+                applyTheme(name, dir, deck);
+            }
+        }));
+    }
+
+    // Makes a loaded theme the deck of the current board and of every new game. A board dealt from its
+    // level's own deck keeps that deck.
+    private void applyTheme(String name, Path dir, CardDeck deck) {
+        Board board = currentLevel != null && currentLevel.getDeck() != null ? null : engine.getBoard();
+        int facesNeeded = 0;
+        for (int i = 0; board != null && i < board.size(); i++) {
+            facesNeeded = Math.max(facesNeeded, board.getFace(i) + 1);
+        }
+        if (facesNeeded > deck.getFaceCount()) {
+            System.out.println("Error: Theme " + name + " has " + deck.getFaceCount() + " faces, this board needs "
+                    + facesNeeded);
+            return;
+        }
+        CardDeck.setDefault(deck);
+        levelPreparer.clearPrefetched(); // Those were dealt with the old deck
+        if (board != null) {
+            boardView.switchDeck(deck);
+            gameDeck = deck;
+            onDeckChanged.accept(deck);
+        }
+        if (themeWatcher != null) {
+            themeWatcher.watch(dir, deck);
+        }
+    }
+
+    // Continues the game saved when the window was last closed, returns false if there is none
+    private boolean resume() {
+        GameSnapshot snapshot;
+        try {
+            byte[] data = snapshotWriter.read();
+            if (data == null) {
+                return false;
+            }
+            snapshot = GameSnapshot.decode(data);
+        } catch (IOException e) {
+            System.out.println("Error: Could not resume the saved game: " + e.getMessage());
+            return false;
+        }
+        Level level = Level.find(snapshot.getLevel(), snapshot.getRows(), snapshot.getCols());
+        if (level == null) {
+            System.out.println("Error: No level is " + snapshot.getRows() + "x" + snapshot.getCols());
+            return false;
+        }
+
+        lvlSelector.setValue(level.getLabel()); // Starts a normal game, which the saved one replaces
+        resumeFrom = snapshot;
+        startWhenReady(level, levelPreparer.prepare(level, snapshot.getSeed()), null);
+        return true;
     }
 
     /**
-     * Starts a new game by resetting variables and reinitializing the grid.
+     * Starts a new game on the selected level. The shuffled layout is prepared in the background and
+     * swapped into the grid in a single FX pulse once it is ready.
      */
     public void newGame() {
-        numClicks = 0;
-        numMatched = 0;
-        clickedCardTwo = null;
-        clickedCardOne = null;
-        turnCount = 0; // Reset the turn counter
-        turnLabel.setText("Turns: " + turnCount); // Update the turn label
-        cardGridPane.initCards(2, 3); // Default to 2x3 grid
-        cardGridPane.createCardImageList(2 * 3); // Generate card images
-        cardGridPane.setCardImages(); // Assign images to cards
-
-        // Reset all cards in the grid
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                Card card = cardGridPane.getCard(row, col);
-                if (card != null) {
-                    card.setMatched(false); // Set as not matched
-                    card.setFlipped(false); // Set as not flipped
-                    card.flipCard(); // Flip to gray side
-                    card.setStyle(""); // Remove any special styling
+        Level level = Level.fromLabel(lvlSelector.getValue());
+        replaying = false;
+        resumeFrom = null;
+        if (remoteEngine != null) {
+            // The server picks the seed, the layout is then dealt here from it. Without a server the game
+            // is dealt and played locally, and the next new game tries the server again.
+            CompletableFuture<PreparedLevel> future = remoteEngine
+                    .requestGameAsync(level.getRows(), level.getCols(), () -> LevelPreparer.faceCount(level))
+                    .thenCompose(seed -> levelPreparer.prepare(level, seed))
+                    .exceptionallyCompose(e -> {
+                        System.out.println("Error: The server could not start a game, playing locally: "
+                                + e.getMessage());
+                        return levelPreparer.prepare(level);
+                    });
+            startWhenReady(level, future, null);
+        } else {
+            startWhenReady(level, levelPreparer.prepare(level), null);
+        }
+    }
+
+    /**
+     * Replays a recorded game at the speed it was played, flipping the recorded cards on this board.
+     *
+     * @param recording The recorded game
+     */
+    public void replay(MoveLog.Recording recording) {
+        Level level = Level.find(recording.getLevel(), recording.getRows(), recording.getCols());
+        if (level == null) {
+            System.out.println("Error: No level is " + recording.getRows() + "x" + recording.getCols());
+            return;
+        }
+
+        lvlSelector.setValue(level.getLabel()); // Starts a normal game, which the replay replaces
+        replaying = true;
+        resumeFrom = null;
+        CompletableFuture<PreparedLevel> future = levelPreparer.prepare(level, recording.getSeed())
+                .thenApply(prepared -> {
+                    if (recording.getFaceCount() != prepared.getDeck().getFaceCount()) {
+                        System.out.println("Warning: Recorded with a deck of " + recording.getFaceCount()
+                                + " faces, the layout will differ");
+                    }
+                    return prepared;
+                });
+        startWhenReady(level, future, () -> scheduleReplay(recording));
+    }
+
+    // Swaps the layout in on the FX thread once it is ready, unless another game was requested meanwhile
+    private void startWhenReady(Level level, CompletableFuture<PreparedLevel> future, Runnable afterStart) {
+        pendingLevel = future;
+        future.thenAccept(prepared -> Platform.runLater(() -> {
+            if (pendingLevel == future) { // Ignore layouts for levels the user has already left
+                startLevel(level, prepared);
+                if (afterStart != null) {
+                    afterStart.run();
                 }
             }
+        }));
+    }
+
+    // Schedules every recorded flip at its recorded time
+    private void scheduleReplay(MoveLog.Recording recording) {
+        long at = 0;
+        for (int n = 0; n < recording.getFlipCount(); n++) {
+            at += recording.getDelay(n);
+            int index = recording.getFlip(n);
+            scheduler.schedule(at, () -> replayFlip(index));
+        }
+    }
+
+    // Flips a recorded card, first finishing a turn whose check has not run yet
+    private void replayFlip(int index) {
+        if (engine.isTurnPending()) {
+            pendingResolve.cancel(); // The recorded player was already past this check
+            resolveTurn();
+        }
+        cardPressed(index);
+    }
+
+    // Resets the game state and swaps the prepared layout into the grid
+    private void startLevel(Level level, PreparedLevel prepared) {
+        rows = prepared.getRows();
+        cols = prepared.getCols();
+        currentLevel = level;
+        levelShown = true;
+        scheduler.cancelAll(); // Drop events left over from the previous game
+        GameSnapshot snapshot = resumeFrom;
+        resumeFrom = null;
+        if (snapshot != null && snapshot.getFaceCount() != prepared.getDeck().getFaceCount()) {
+            System.out.println("Error: The saved game used a deck of " + snapshot.getFaceCount()
+                    + " faces, starting a new game");
+            snapshot = null;
+        }
+        // Replays and saved games never reach the server
+        engine = remoteEngine != null && remoteEngine.isConnected() && !replaying && snapshot == null
+                ? remoteEngine : localEngine;
+        engine.newGame(prepared.getBoard()); // Reset the turn counter and matches
+        gameStart = System.nanoTime();
+        if (snapshot != null) {
+            snapshot.restore(engine, prepared.getBoard()); // Continue where the saved game left off
+            gameStart -= snapshot.getElapsedMillis() * 1_000_000L;
+        }
+        assisted = snapshot != null && snapshot.isAssisted(); // Still unscored if help was used before saving
+        spectators.start(engine); // Viewers get the new board as a snapshot
+        pendingFlips = new GameEvents.Flip[prepared.getBoard().size()]; // Flips of the last game are dropped
+        pendingFlipStarts = new long[prepared.getBoard().size()];
+        advisor.newGame(prepared.getBoard());
+        hintLabel.setText("");
+        scheduleAutoplay();
+        gameSeed = prepared.getSeed();
+        gameFaceCount = prepared.getDeck().getFaceCount();
+        gameDeck = prepared.getDeck();
+        onDeckChanged.accept(gameDeck); // Before the spectators' snapshot is flushed
+        turnLabel.setText("Turns: " + engine.getTurnCount()); // Update the turn label
+        if (snapshot == null) {
+            startRecording(level, prepared); // A log has to start with the first flip
+        } else {
+            closeMoveLog();
+        }
+
+        // Use the canvas for boards the card grid cannot hold
+        if (usesCanvas(level)) {
+            boardView = canvasView;
+            setCenter(canvasScroll);
+        } else {
+            boardView = cardGridPane;
+            setCenter(cardGridPane);
+        }
+
+        GameEvents.InitCards event = new GameEvents.InitCards();
+        event.begin();
+        long start = System.nanoTime();
+        boardView.applyLevel(prepared); // Swap the whole board in at once
+        long swapNanos = System.nanoTime() - start;
+        metrics.record(Metrics.PREPARE_LEVEL + level, prepared.getPrepareNanos());
+        metrics.record(Metrics.INIT_CARDS + level, swapNanos);
+        event.level = level.toString();
+        event.cards = prepared.getRows() * prepared.getCols();
+        event.prepareNanos = prepared.getPrepareNanos();
+        event.commit();
+        if (engine.isTurnPending()) {
+            pendingResolve = scheduler.schedule(TURN_DELAY_MILLIS, this::resolveTurn); // Saved mid-turn
+        }
+        saveSnapshot(); // A new game replaces the saved one right away
+
+        levelPreparer.prefetch(level); // Have a fresh layout ready for the next New Game
+        levelPreparer.prefetch(level.next()); // And for the level after this one
+    }
+
+    // Whether a level is drawn on the canvas: marathon levels, and any board bigger than the card grid
+    private boolean usesCanvas(Level level) {
+        return canvasOnly || level.isMarathon() || level.getRows() > cardGridPane.getMAXROWS()
+                || level.getCols() > cardGridPane.getMAXCOLS();
+    }
+
+    // Size in pixels the faces of a level are drawn at by the view that shows it
+    private int facePixels(Level level) {
+        return usesCanvas(level) ? canvasView.getFacePixels(level.getRows(), level.getCols())
+                : cardGridPane.getFacePixels();
+    }
+
+    // Connects to a game server, falling back to local games if none is given or it cannot be reached
+    private void connect(String address) {
+        if (address == null) {
+            return;
+        }
+        try {
+            remoteEngine = new RemoteGameEngine(address, Platform::runLater); // Replies are shown on the FX thread
+            remoteEngine.setOnReply(() -> {
+                if (engine == remoteEngine) {
+                    turnLabel.setText("Turns: " + engine.getTurnCount()); // The server's count arrived
+                }
+            });
+            System.out.println("Playing on the server at " + address);
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Error: Could not connect to " + address + ", playing locally: " + e.getMessage());
+        }
+    }
+
+    // Starts a new move log for the game when recording is turned on
+    private void startRecording(Level level, PreparedLevel prepared) {
+        closeMoveLog();
+        if (replayDir == null || replaying) {
+            return;
+        }
+        try {
+            Path dir = Files.createDirectories(Paths.get(replayDir));
+            Path file = dir.resolve("game-" + System.currentTimeMillis() + ".cml");
+            moveLog = new MoveLog(Files.newOutputStream(file), prepared.getRows(), prepared.getCols(),
+                    prepared.getDeck().getFaceCount(), prepared.getSeed(), level.getLabel());
+        } catch (IOException e) {
+            System.out.println("Error: Could not record game: " + e.getMessage());
+        }
+    }
+
+    // Closes the move log of the current game, if any
+    private void closeMoveLog() {
+        if (moveLog != null) {
+            try {
+                moveLog.close();
+            } catch (IOException e) {
+                System.out.println("Error: Could not close move log: " + e.getMessage());
+            }
+            moveLog = null;
         }
+    }
+
+    // Flips the card at a board index and waits before resolving the turn once two cards are up
+    private void cardPressed(int index) {
+        if (engine.getBoard() == null) {
+            return; // No game yet
+        }
+        long pressed = System.nanoTime();
+        GameEvents.Flip flipEvent = new GameEvents.Flip();
+        flipEvent.begin();
+        int result = engine.flip(index);
+        if (result == GameEngine.IGNORED) {
+            return; // Ignore if already flipped/matched or if waiting for an animation
+        }
+        showCard(index);
+        advisor.saw(index);
+        hintLabel.setText("");
+        flipEvent.index = index;
+        pendingFlips[index] = flipEvent; // Finished when the card shows its face
+        pendingFlipStarts[index] = pressed;
+        if (moveLog != null) {
+            try {
+                moveLog.recordFlip(index);
+            } catch (IOException e) {
+                System.out.println("Error: Stopped recording: " + e.getMessage());
+                closeMoveLog();
+            }
+        }
+
+        if (result == GameEngine.SECOND) {
+            if (fastPlayBox.isSelected()) {
+                resolveTurn(); // End the turn now, the cards turn back over later
+            } else {
+                pendingResolve = scheduler.schedule(TURN_DELAY_MILLIS, this::resolveTurn); // Check after a delay
+            }
+        }
+    }
+
+    // Saves the game in progress in the background, or drops the save once the game is over
+    private void saveSnapshot() {
+        if (replaying || engine != localEngine || engine.getBoard() == null) {
+            return; // Replays are already saved, and server games live on the server
+        }
+        if (engine.isComplete()) {
+            snapshotWriter.delete();
+            return;
+        }
+        long start = System.nanoTime();
+        int elapsedMillis = (int) ((start - gameStart) / 1_000_000);
+        snapshotWriter.save(GameSnapshot.capture(engine, gameFaceCount, gameSeed, elapsedMillis,
+                currentLevel.getLabel(), assisted).encode());
+        metrics.record(Metrics.SNAPSHOT, System.nanoTime() - start);
+    }
+
+    // Shows which card the solver would flip next
+    private void showHint() {
+        long start = System.nanoTime();
+        int index = advisor.suggest(engine);
+        double turnsLeft = advisor.expectedTurnsLeft();
+        metrics.record(Metrics.HINT, System.nanoTime() - start);
+        if (index < 0) {
+            hintLabel.setText("");
+            return;
+        }
+        assisted = true;
+        Board board = engine.getBoard();
+        String hint = "Hint: row " + (board.rowOf(index) + 1) + ", column " + (board.colOf(index) + 1);
+        if (!Double.isNaN(turnsLeft)) {
+            hint += String.format(" (about %.1f turns left)", turnsLeft);
+        }
+        hintLabel.setText(hint);
+    }
+
+    // Flips the card the solver suggests, then comes back for the next one while autoplay is on
+    private void autoplayStep() {
+        if (!autoplayBox.isSelected() || replaying || engine.getBoard() == null || engine.isComplete()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int index = advisor.suggest(engine); // -1 while a turn is waiting to be resolved
+        metrics.record(Metrics.HINT, System.nanoTime() - start);
+        if (index >= 0) {
+            assisted = true;
+            cardPressed(index);
+        }
+        scheduleAutoplay();
+    }
+
+    // Schedules the next autoplay move if autoplay is on, replacing one already waiting
+    private void scheduleAutoplay() {
+        if (autoplayTask != null) {
+            autoplayTask.cancel();
+            autoplayTask = null;
+        }
+        if (autoplayBox.isSelected()) {
+            autoplayTask = scheduler.schedule(AUTOPLAY_MILLIS, this::autoplayStep);
+        }
+    }
+
+    // Resolves the pending turn and shows the result
+    private void resolveTurn() {
+        if (!engine.isTurnPending()) {
+            return; // A new game started while waiting
+        }
+        int first = engine.getFirstIndex();
+        int second = engine.getSecondIndex();
+        int result = engine.resolveTurn();
+
+        turnLabel.setText("Turns: " + engine.getTurnCount());
+        spectators.turnsChanged();
+        saveSnapshot();
+        if (result == GameEngine.MISMATCH && fastPlayBox.isSelected()) {
+            // The engine has already turned the cards down, so show them a little longer first
+            scheduler.schedule(TURN_DELAY_MILLIS, () -> {
+                showCard(first);
+                showCard(second);
+            });
+        } else {
+            showCard(first); // Matched cards turn green, others flip back
+            showCard(second);
+        }
+
+        if (result == GameEngine.MATCH) {
+            // Play a sound upon match
+            soundEngine.play(MATCH_SOUND);
+
+            // Check if all pairs are matched
+            if (engine.isComplete()) {
+                int turns = engine.getTurnCount();
+                String scores = saveScore(turns);
+                Platform.runLater(() -> {
+                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                    alert.setTitle("Concentration");
+                    alert.setHeaderText("Congratulations!");
+                    alert.setContentText("You've matched all the cards in " + turns + " turns!" + scores);
+                    alert.showAndWait();
+                });
+            }
+        }
+    }
+
+    // Saves a finished game and returns a line comparing it with earlier games on the same level
+    private String saveScore(int turns) {
+        if (scoreStore == null || replaying) {
+            return "";
+        }
+        if (assisted) {
+            return "\nGames played with Hint or Autoplay are not saved to your scores.";
+        }
+        // Compare with the games before this one, the new record is written in the background
+        ScoreStore.Score best = scoreStore.getBest(currentLevel);
+        long games = scoreStore.getCount(currentLevel);
+        double beaten = scoreStore.percentBeaten(currentLevel, turns);
+        int durationMillis = (int) ((System.nanoTime() - gameStart) / 1_000_000);
+        scoreStore.record(new ScoreStore.Score(ScoreStore.levelKey(currentLevel.getLabel()), rows, cols, turns,
+                durationMillis, gameSeed, System.currentTimeMillis()));
+
+        if (best == null) {
+            return "\nThis is your first game on this level.";
+        }
+        return String.format("%nBest: %d turns. You beat %.0f%% of your %d earlier games.",
+                best.getTurns(), beaten, games);
+    }
+
+    // Marks the start of a pulse's CSS and layout work
+    private void pulseStarted() {
+        pulseStart = System.nanoTime();
+        pulseEvent = new GameEvents.Pulse();
+        pulseEvent.begin();
+    }
+
+    // Records the pulse just before the frame is rendered
+    private void pulseLaidOut() {
+        long now = System.nanoTime();
+        if (pulseEvent != null) {
+            metrics.record(Metrics.PULSE, now - pulseStart);
+            pulseEvent.commit();
+            pulseEvent = null;
+        }
+        if (startupPending && levelShown) {
+            startupPending = false;
+            startupFinished();
+        }
+    }
+
+    // Reports the time from launching the JVM until the first board was laid out and could take clicks.
+    // With -Dstartup.exit=true the game quits right after, for timing runs and for training the CDS archive.
+    private void startupFinished() {
+        ProcessHandle.current().info().startInstant().ifPresent(launched -> {
+            long millis = Instant.now().toEpochMilli() - launched.toEpochMilli();
+            metrics.record(Metrics.STARTUP, millis * 1_000_000);
+            System.out.println("First interactive frame " + millis + " ms after launch");
+        });
+        if (Boolean.getBoolean("startup.exit")) {
+            shutdown();
+            Platform.exit();
+        }
+    }
+
+    // Adds a label next to the turn count that shows the live timings twice a second
+    private void showStatsOverlay() {
+        statsLabel = new Label();
+        commandPane.getChildren().add(commandPane.getChildren().indexOf(turnLabel) + 1, statsLabel);
+        Timeline refresh = new Timeline(new KeyFrame(Duration.millis(500), e -> statsLabel.setText(String.format(
+                "flip p99 %.1f ms | pulse %.1f ms, p99 %.1f | sound %.0f ms",
+                metrics.timer(Metrics.FLIP).percentile(99) / 1e6,
+                metrics.timer(Metrics.PULSE).getLast() / 1e6,
+                metrics.timer(Metrics.PULSE).percentile(99) / 1e6,
+                metrics.timer(Metrics.SOUND_START).getLast() / 1e6))));
+        refresh.setCycleCount(Animation.INDEFINITE);
+        refresh.play();
+    }
 
-        // Register card listeners for the new game
-        registerCardListeners();
+    // Records the time from a card's press until the flip shows its face
+    private void cardShown(int index) {
+        GameEvents.Flip flipEvent = index < pendingFlips.length ? pendingFlips[index] : null;
+        if (flipEvent == null) {
+            return; // Not a pressed card, for example one turning back over
+        }
+        metrics.record(Metrics.FLIP, System.nanoTime() - pendingFlipStarts[index]);
+        flipEvent.commit();
+        pendingFlips[index] = null;
+    }
+
+    // Shows a card's new state on the board and to the spectators
+    private void showCard(int index) {
+        boardView.refreshCard(index);
+        spectators.cardChanged(index);
     }
 
     /**
-     * Registers listeners for all cards to handle user interactions.
+     * Releases the audio lines, closes the move and score logs and disconnects from the server when the window closes.
      */
-    public void registerCardListeners() {
-        for (int row = 0; row < 8; row++) {
-    for (int col = 0; col < 8; col++) {
-        Card card = cardGridPane.getCard(row, col);
-        card.setFlipped(false); // Ensure the card starts unflipped
-        card.flipCard(); // Display the card's default image
-
-        // Add a mouse event listener to the card
-        card.setOnMousePressed(e -> {
-            if (card.isFlipped() || card.isMatched() || numClicks >= 2) {
-                return; // Ignore if already flipped/matched or if waiting for an animation
+    public void shutdown() {
+        saveSnapshot(); // Keeps a card flipped in the unfinished turn too
+        if (themeWatcher != null) {
+            themeWatcher.close();
+        }
+        snapshotWriter.close();
+        closeMoveLog();
+        if (scoreStore != null) {
+            try {
+                scoreStore.close();
+            } catch (IOException e) {
+                System.out.println("Error: Could not close the score log: " + e.getMessage());
             }
+        }
+        if (remoteEngine != null) {
+            remoteEngine.close();
+        }
+        soundEngine.shutdown();
+    }
 
-            card.setFlipped(true);
-            card.flipCard();
+    public GameScheduler getScheduler() {
+        return scheduler;
+    }
 
-    if (numClicks == 0) {
-        clickedCardOne = card; // Set the first clicked card
-        numClicks = 1;
-    } else if (numClicks == 1) {
-        clickedCardTwo = card; // Set the second clicked card
-        numClicks = 2;
+    // Selects a level, which starts a new game on it
+    void selectLevel(Level level) {
+        lvlSelector.setValue(level.getLabel());
+    }
 
-        // AnimationTimer to handle the matching logic with a delay
-        new AnimationTimer() {
-            private long startTime = -1;
+    void setFastPlay(boolean fastPlay) {
+        fastPlayBox.setSelected(fastPlay);
+    }
 
-            @Override
-            public void handle(long now) {
-                if (startTime < 0) {
-                    startTime = now;
-                }
-                if (now - startTime >= 800_000_000) { // 800 ms delay
-                    turnCount++;
-                    turnLabel.setText("Turns: " + turnCount);
-
-                    if (clickedCardOne.getPath().equals(clickedCardTwo.getPath())) {
-                        // Cards match
-                        clickedCardOne.setMatched(true);
-                        clickedCardTwo.setMatched(true);
-                        clickedCardOne.setStyle("-fx-background-color: green;");
-                        clickedCardTwo.setStyle("-fx-background-color: green;");
-                        numMatched++;
-
-                        // Play a sound upon match
-                        try {
-                            File file = new File("WHAT OH HELL NAH - Angry Grandpa Clip.wav");
-                            AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(file);
-                            Clip clip = AudioSystem.getClip();
-                            clip.open(audioInputStream);
-                            clip.start();
-                        } catch (LineUnavailableException | UnsupportedAudioFileException | IOException ex) {
-                            throw new RuntimeException(ex);
-                        }
-
-                        // Check if all pairs are matched
-                        int totalMatchesNeeded = (cardGridPane.getCurrentRows() * cardGridPane.getCurrentCols()) / 2;
-                        if (numMatched == totalMatchesNeeded) {
-                            Platform.runLater(() -> {
-                                Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                                alert.setTitle("Concentration");
-                                alert.setHeaderText("Congratulations!");
-                                alert.setContentText("You've matched all the cards in " + turnCount + " turns!");
-                                alert.showAndWait();
-                            });
-                        }
-                    } else {
-                        // Cards don't match; flip them back
-                        clickedCardOne.setFlipped(false);
-                        clickedCardTwo.setFlipped(false);
-                        clickedCardOne.flipCard();
-                        clickedCardTwo.flipCard();
-                    }
+    // The node currently showing the board
+    Node getBoardNode() {
+        return (Node) boardView;
+    }
 
-                    // Reset for the next turn
-                    clickedCardOne = null;
-                    clickedCardTwo = null;
-                    numClicks = 0;
-                    stop(); // Stop the AnimationTimer
-                }
-            }
-        }.start();
+    GameEngine getEngine() {
+        return engine;
+    }
+
+    public SpectatorFeed getSpectatorFeed() {
+        return spectators;
+    }
+
+    // Deck the current board is drawn with, or null before the first level is shown
+    public CardDeck getDeck() {
+        return gameDeck;
+    }
+
+    /**
+     * Sets the code told about the deck of every new board and about theme switches, so a spectator can
+     * draw the board with the same faces.
+     *
+     * @param onDeckChanged Called on the FX thread with the deck the board is now drawn with
+     */
+    public void setOnDeckChanged(Consumer<CardDeck> onDeckChanged) {
+        this.onDeckChanged = onDeckChanged;
+    }
+
+    public SoundEngine getSoundEngine() {
+        return soundEngine;
     }
-});
-}
-}
-}
 }
@@ -0,0 +1,62 @@
+/**
+ * GameProtocol describes the binary messages between GameServer and its clients. Every message starts with
+ * a one-byte type and has a fixed size, so no length prefix is needed. Numbers are big-endian.
+ *
+ * Client to server:
+ *   NEW_GAME  rows (1 byte), cols (1 byte), face count (2 bytes)       - 5 bytes
+ *   FLIP      card index (2 bytes)                                     - 3 bytes
+ *
+ * Server to client:
+ *   STARTED   seed (8 bytes)                                           - 9 bytes
+ *   FLIPPED   flip result (1), face (2), turn outcome (1), turns (4), complete (1) - 10 bytes
+ *   ERROR     error code (1 byte)                                      - 2 bytes
+ *
+ * The client deals the board itself from the seed in STARTED, with the same LevelPreparer.dealFaces call as
+ * the server. The server applies the rules and is the one that counts turns. A turn is resolved as soon as
+ * its second card is flipped, and FLIPPED carries the outcome.
+ */
+public final class GameProtocol {
+    public static final int DEFAULT_PORT = 7777;
+
+    // Message types sent by the client
+    public static final byte NEW_GAME = 0x01;
+    public static final byte FLIP = 0x02;
+
+    // Message types sent by the server
+    public static final byte STARTED = (byte) 0x81;
+    public static final byte FLIPPED = (byte) 0x82;
+    public static final byte ERROR = (byte) 0xFF;
+
+    // Error codes
+    public static final byte ERR_BAD_MESSAGE = 1; // Unknown message type
+    public static final byte ERR_BAD_SIZE = 2; // Board size or face count not allowed
+    public static final byte ERR_NO_GAME = 3; // FLIP sent before NEW_GAME
+
+    public static final int MAX_SIDE = 255; // Largest number of rows or columns
+
+    private GameProtocol() {
+    }
+
+    /**
+     * Returns the size of a message, including its type byte.
+     *
+     * @param type The message type
+     * @return The size in bytes, or -1 for an unknown type
+     */
+    public static int sizeOf(byte type) {
+        switch (type) {
+            case NEW_GAME:
+                return 5;
+            case FLIP:
+                return 3;
+            case STARTED:
+                return 9;
+            case FLIPPED:
+                return 10;
+            case ERROR:
+                return 2;
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+import javafx.animation.AnimationTimer;
+
+/**
+ * GameScheduler runs delayed game events, such as turning mismatched cards back over, from one shared
+ * AnimationTimer. Events are kept in a timing wheel: each slot holds the events due in one tick, so
+ * scheduling an event and finding the due ones costs the same however many events are waiting. The timer
+ * only runs while events are waiting.
+ */
+public class GameScheduler {
+    private static final long TICK_NANOS = 10_000_000; // Resolution of the wheel, 10 ms
+    private static final int SLOTS = 256; // Slots in the wheel, covering 2.56 seconds per turn of the wheel
+    private static final int MASK = SLOTS - 1;
+
+    private final Task[] wheel = new Task[SLOTS]; // Linked list of events for each slot
+    private long currentTick; // Last tick whose events have run
+    private int pending; // Number of events waiting
+
+    private long lastPulseNanos; // Time spent in the most recent pulse
+    private long maxPulseNanos; // Longest time spent in one pulse
+    private long totalPulseNanos; // Time spent in all pulses, for the average
+    private long pulses; // Number of pulses that ran events
+
+    // Pulse handler that runs the events that are due
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            pulse(System.nanoTime());
+        }
+    };
+
+    /**
+     * Task is an event waiting in the wheel. It can be cancelled until it runs.
+     */
+    public static final class Task {
+        private final Runnable action; // What to run
+        private final long dueTick; // Tick the event is due in
+        private Task next; // Next event in the same slot
+        private boolean cancelled; // Whether the event should be skipped
+
+        private Task(Runnable action, long dueTick) {
+            this.action = action;
+            this.dueTick = dueTick;
+        }
+
+        // Stops the event from running if it has not run yet
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Schedules an action to run on the FX thread after a delay.
+     *
+     * @param delayMillis The delay in milliseconds
+     * @param action      The action to run
+     * @return The scheduled Task, which can be cancelled
+     */
+    public Task schedule(long delayMillis, Runnable action) {
+        long now = System.nanoTime();
+        if (pending == 0) {
+            currentTick = now / TICK_NANOS; // The wheel was idle, so start it at the current time
+            timer.start();
+        }
+        long dueTick = Math.max(currentTick + 1, (now + delayMillis * 1_000_000 + TICK_NANOS - 1) / TICK_NANOS);
+        Task task = new Task(action, dueTick);
+        int slot = (int) (dueTick & MASK);
+        task.next = wheel[slot];
+        wheel[slot] = task;
+        pending++;
+        return task;
+    }
+
+    /**
+     * Cancels every waiting event, for example when a new game starts.
+     */
+    public void cancelAll() {
+        for (int slot = 0; slot < SLOTS; slot++) {
+            for (Task task = wheel[slot]; task != null; task = task.next) {
+                task.cancelled = true;
+            }
+        }
+    }
+
+    // Runs every event due up to the given time
+    private void pulse(long now) {
+        long start = System.nanoTime();
+        long targetTick = now / TICK_NANOS;
+        while (currentTick < targetTick && pending > 0) {
+            currentTick++;
+            runSlot(currentTick);
+        }
+        if (pending == 0) {
+            timer.stop(); // Nothing waiting, so stop asking for pulses
+        }
+
+        lastPulseNanos = System.nanoTime() - start;
+        maxPulseNanos = Math.max(maxPulseNanos, lastPulseNanos);
+        totalPulseNanos += lastPulseNanos;
+        pulses++;
+    }
+
+    // Runs the events of one slot that are due in this tick and keeps the ones for later turns of the wheel
+    private void runSlot(long tick) {
+        int slot = (int) (tick & MASK);
+        Task task = wheel[slot];
+        wheel[slot] = null; // Detach the list so actions can schedule into this slot again
+        while (task != null) {
+            Task next = task.next;
+            if (task.dueTick > tick && !task.cancelled) {
+                task.next = wheel[slot]; // Due in a later turn of the wheel
+                wheel[slot] = task;
+            } else {
+                pending--;
+                if (!task.cancelled) {
+                    task.action.run();
+                }
+            }
+            task = next;
+        }
+    }
+
+    // Getters for the pulse statistics, in nanoseconds
+
+    public int getPending() {
+        return pending;
+    }
+
+    public long getLastPulseNanos() {
+        return lastPulseNanos;
+    }
+
+    public long getMaxPulseNanos() {
+        return maxPulseNanos;
+    }
+
+    public long getAveragePulseNanos() {
+        return pulses == 0 ? 0 : totalPulseNanos / pulses;
+    }
+}
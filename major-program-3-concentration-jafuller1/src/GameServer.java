@@ -0,0 +1,271 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * GameServer hosts independent Concentration games for many clients over localhost sockets, using the
+ * rules in GameEngine and the messages in GameProtocol. Connections are spread over a few selector threads,
+ * one per core, and each connection is one session. A session only holds a small read buffer until its
+ * first game starts, so a single JVM can keep a very large number of idle sessions open.
+ *
+ * Usage: java GameServer [--port N] [--threads N]
+ */
+public class GameServer implements Runnable {
+    private final ServerSocketChannel serverChannel; // Accepts new connections
+    private final Worker[] workers; // Selector threads serving the sessions
+    private int nextWorker; // Worker that gets the next connection
+    private volatile boolean running = true;
+
+    /**
+     * Session is the state of one connection: its partly read message and, once a game has started, the
+     * engine and board of that game.
+     */
+    private static final class Session {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(8); // Largest client message is 5 bytes
+        ByteBuffer out; // Replies waiting to be written, created on the first reply
+        GameEngine engine; // Created when the first game starts
+
+        Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    // Constructor that binds the server to a port on localhost
+    public GameServer(int port, int threads) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress("localhost", port), 1024);
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = GameProtocol.DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--port")) {
+                port = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[i + 1]);
+            }
+        }
+        GameServer server = new GameServer(port, threads);
+        System.out.println("Concentration server listening on localhost:" + server.getPort());
+        server.run();
+    }
+
+    /**
+     * Starts the worker threads and accepts connections until the server is closed.
+     */
+    @Override
+    public void run() {
+        for (Worker worker : workers) {
+            worker.start();
+        }
+        try {
+            while (running) {
+                SocketChannel channel = serverChannel.accept(); // Blocking accept on this thread
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true); // Replies are tiny, send them at once
+                workers[nextWorker].add(channel);
+                nextWorker = (nextWorker + 1) % workers.length;
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.out.println("Error: Server stopped: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes every session.
+     */
+    public void close() throws IOException {
+        running = false;
+        serverChannel.close();
+        for (Worker worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Handles one message and writes its reply into the session's output buffer.
+     *
+     * @param session The session the message came from
+     * @param in      The message, positioned after its type byte
+     * @param type    The message type
+     */
+    static void handle(Session session, ByteBuffer in, byte type) {
+        ByteBuffer out = session.out;
+        if (type == GameProtocol.NEW_GAME) {
+            int rows = in.get() & 0xFF;
+            int cols = in.get() & 0xFF;
+            int faceCount = in.getShort() & 0xFFFF;
+            if (rows == 0 || cols == 0 || (rows * cols) % 2 != 0 || faceCount == 0) {
+                out.put(GameProtocol.ERROR).put(GameProtocol.ERR_BAD_SIZE);
+                return;
+            }
+            long seed = ThreadLocalRandom.current().nextLong();
+            int[] faces = LevelPreparer.dealFaces(rows * cols, faceCount, new Random(seed));
+            if (session.engine == null) {
+                session.engine = new GameEngine();
+            }
+            session.engine.newGame(new Board(rows, cols, faces));
+            out.put(GameProtocol.STARTED).putLong(seed);
+        } else if (type == GameProtocol.FLIP) {
+            int index = in.getShort() & 0xFFFF;
+            GameEngine engine = session.engine;
+            if (engine == null) {
+                out.put(GameProtocol.ERROR).put(GameProtocol.ERR_NO_GAME);
+                return;
+            }
+            int result = engine.flip(index);
+            int face = result == GameEngine.IGNORED ? 0 : engine.getBoard().getFace(index);
+            int outcome = result == GameEngine.SECOND ? engine.resolveTurn() : GameEngine.NONE;
+            out.put(GameProtocol.FLIPPED).put((byte) result).putShort((short) face).put((byte) outcome)
+                    .putInt(engine.getTurnCount()).put((byte) (engine.isComplete() ? 1 : 0));
+        }
+    }
+
+    /**
+     * Worker is a selector thread serving a share of the sessions.
+     */
+    private static final class Worker extends Thread {
+        private final Selector selector;
+        private final ConcurrentLinkedQueue<SocketChannel> newChannels = new ConcurrentLinkedQueue<>();
+        private volatile boolean running = true;
+
+        Worker(int id) throws IOException {
+            super("game-server-" + id);
+            setDaemon(true);
+            selector = Selector.open();
+        }
+
+        // Hands a new connection to this worker
+        void add(SocketChannel channel) {
+            newChannels.add(channel);
+            selector.wakeup();
+        }
+
+        void shutdown() throws IOException {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    SocketChannel channel;
+                    while ((channel = newChannels.poll()) != null) {
+                        channel.register(selector, SelectionKey.OP_READ, new Session(channel));
+                    }
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Session session = (Session) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                read(key, session);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write(key, session);
+                            }
+                        } catch (IOException e) {
+                            close(key, session); // Client went away
+                        }
+                    }
+                }
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                selector.close();
+            } catch (IOException e) {
+                System.out.println("Error: Server worker stopped: " + e.getMessage());
+            }
+        }
+
+        // Reads what the client sent, handles it and sends the replies
+        private void read(SelectionKey key, Session session) throws IOException {
+            if (session.channel.read(session.in) < 0) {
+                close(key, session);
+                return;
+            }
+            if (session.out == null) {
+                session.out = ByteBuffer.allocate(64); // Room for a few replies to pipelined messages
+            }
+            handleBuffered(session);
+            write(key, session);
+        }
+
+        // Handles every complete message in the input buffer while there is room for its reply, returning
+        // whether any message was handled
+        private boolean handleBuffered(Session session) {
+            ByteBuffer in = session.in;
+            boolean handled = false;
+            in.flip();
+            while (in.hasRemaining()) {
+                if (session.out.remaining() < 16) {
+                    break; // Let the replies drain first, write handles the rest
+                }
+                byte type = in.get(in.position());
+                int size = GameProtocol.sizeOf(type);
+                if (size < 0 || type == GameProtocol.STARTED || type == GameProtocol.FLIPPED
+                        || type == GameProtocol.ERROR) {
+                    session.out.put(GameProtocol.ERROR).put(GameProtocol.ERR_BAD_MESSAGE);
+                    in.clear().flip(); // Drop whatever else is in the buffer
+                    handled = true;
+                    break;
+                }
+                if (in.remaining() < size) {
+                    break; // Wait for the rest of the message
+                }
+                in.get(); // Skip the type byte
+                handle(session, in, type);
+                handled = true;
+            }
+            in.compact();
+            return handled;
+        }
+
+        // Writes waiting replies, asking to be told when the socket can take more if they do not all fit.
+        // Once they are all written, messages held back for room are handled and their replies written too.
+        private void write(SelectionKey key, Session session) throws IOException {
+            ByteBuffer out = session.out;
+            boolean left;
+            do {
+                out.flip();
+                session.channel.write(out);
+                left = out.hasRemaining();
+                out.compact();
+            } while (!left && handleBuffered(session));
+            key.interestOps(left ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        private void close(SelectionKey key, Session session) {
+            key.cancel();
+            try {
+                session.channel.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+    }
+}
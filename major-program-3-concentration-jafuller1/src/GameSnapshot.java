@@ -0,0 +1,190 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * GameSnapshot is a game in progress packed into a few dozen bytes, so it can be saved after every turn
+ * and resumed after the window is closed. The layout is not stored card by card: every layout is dealt
+ * from a seed, so the seed and the deck's face count are enough to deal it again. The format is
+ *
+ *   magic "CS" (2) | version (1) | rows (1) | cols (1) | face count (2) | seed (8) | turns (4) |
+ *   time played in ms (4) | first card (2) | second card (2) | flags (1) | matched cards, one bit each |
+ *   level label length (1) | level label, UTF-8 | CRC32C (4)
+ *
+ * with -1 for a card of the pending pair that has not been flipped. The only flag is ASSISTED, set once Hint
+ * or Autoplay helped, so a resumed game still is not scored. The label tells levels of the same size apart.
+ * An 8x8 game on "Level 6" takes 48 bytes.
+ */
+public final class GameSnapshot {
+    private static final short MAGIC = 0x4353; // "CS"
+    private static final byte VERSION = 1;
+    private static final int MAX_LABEL = 255; // Longest label stored, in bytes
+    private static final int HEADER_SIZE = 28; // Everything in front of the matched bits
+    private static final int ASSISTED = 1; // Flag set when Hint or Autoplay helped with the game
+
+    private final int rows, cols; // Size of the board
+    private final int faceCount; // Faces in the deck the layout was dealt from
+    private final long seed; // Seed the layout was dealt from
+    private final int turns; // Resolved turns
+    private final int elapsedMillis; // Time played so far
+    private final int firstIndex, secondIndex; // Cards of the pending pair, or -1
+    private final byte[] matched; // Bit set for each matched card
+    private final boolean assisted; // Whether Hint or Autoplay helped with the game
+    private final String level; // Label of the level
+
+    // Constructor that accepts every field, use capture or decode to get a snapshot
+    private GameSnapshot(int rows, int cols, int faceCount, long seed, int turns, int elapsedMillis,
+                         int firstIndex, int secondIndex, byte[] matched, String level, boolean assisted) {
+        this.rows = rows;
+        this.cols = cols;
+        this.faceCount = faceCount;
+        this.seed = seed;
+        this.turns = turns;
+        this.elapsedMillis = elapsedMillis;
+        this.firstIndex = firstIndex;
+        this.secondIndex = secondIndex;
+        this.matched = matched;
+        this.level = level;
+        this.assisted = assisted;
+    }
+
+    /**
+     * Takes a snapshot of the game an engine is playing.
+     *
+     * @param engine        The engine playing the game
+     * @param faceCount     The number of faces in the deck the layout was dealt from
+     * @param seed          The seed the layout was dealt from
+     * @param elapsedMillis The time played so far
+     * @param level         The label of the level being played
+     * @param assisted      Whether Hint or Autoplay helped with the game
+     * @return The snapshot
+     */
+    public static GameSnapshot capture(GameEngine engine, int faceCount, long seed, int elapsedMillis,
+                                       String level, boolean assisted) {
+        Board board = engine.getBoard();
+        byte[] matched = new byte[(board.size() + 7) >>> 3];
+        for (int i = 0; i < board.size(); i++) {
+            if (board.isMatched(i)) {
+                matched[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        return new GameSnapshot(board.getRows(), board.getCols(), faceCount, seed, engine.getTurnCount(),
+                elapsedMillis, engine.getFirstIndex(), engine.getSecondIndex(), matched, level, assisted);
+    }
+
+    /**
+     * Packs the snapshot into bytes.
+     *
+     * @return The encoded snapshot
+     */
+    public byte[] encode() {
+        byte[] label = level.getBytes(StandardCharsets.UTF_8);
+        int labelLength = Math.min(label.length, MAX_LABEL);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + matched.length + 1 + labelLength + 4);
+        buffer.putShort(MAGIC).put(VERSION).put((byte) rows).put((byte) cols).putShort((short) faceCount)
+                .putLong(seed).putInt(turns).putInt(elapsedMillis)
+                .putShort((short) firstIndex).putShort((short) secondIndex).put((byte) (assisted ? ASSISTED : 0))
+                .put(matched)
+                .put((byte) labelLength).put(label, 0, labelLength);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    /**
+     * Unpacks a snapshot written by encode.
+     *
+     * @param data The encoded snapshot
+     * @return The snapshot
+     * @throws IOException If the data is not a snapshot or is damaged
+     */
+    public static GameSnapshot decode(byte[] data) throws IOException {
+        if (data.length < HEADER_SIZE + 4) {
+            throw new IOException("Snapshot is too short");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.getShort() != MAGIC) {
+            throw new IOException("Not a snapshot");
+        }
+        if (buffer.get() != VERSION) {
+            throw new IOException("Not a snapshot of this version");
+        }
+        int rows = buffer.get() & 0xFF;
+        int cols = buffer.get() & 0xFF;
+        int faceCount = buffer.getShort() & 0xFFFF;
+        long seed = buffer.getLong();
+        int turns = buffer.getInt();
+        int elapsedMillis = buffer.getInt();
+        int first = buffer.getShort();
+        int second = buffer.getShort();
+        boolean assisted = (buffer.get() & ASSISTED) != 0;
+        byte[] matched = new byte[(rows * cols + 7) >>> 3];
+        int labelLength = data.length > HEADER_SIZE + matched.length ? data[HEADER_SIZE + matched.length] & 0xFF : 0;
+        if (data.length != HEADER_SIZE + matched.length + 1 + labelLength + 4) {
+            throw new IOException("Snapshot has the wrong length for a " + rows + "x" + cols + " board");
+        }
+        buffer.get(matched);
+        buffer.get(); // Label length, read above
+        String level = new String(data, buffer.position(), labelLength, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + labelLength);
+        CRC32C crc = new CRC32C();
+        crc.update(data, 0, buffer.position());
+        if (buffer.getInt() != (int) crc.getValue()) {
+            throw new IOException("Snapshot checksum does not match");
+        }
+        return new GameSnapshot(rows, cols, faceCount, seed, turns, elapsedMillis, first, second, matched, level,
+                assisted);
+    }
+
+    /**
+     * Puts the saved game on a board dealt again from the seed, and lets the engine continue it.
+     *
+     * @param engine The engine that will play the game
+     * @param board  The board dealt from this snapshot's seed
+     */
+    public void restore(GameEngine engine, Board board) {
+        engine.newGame(board);
+        for (int i = 0; i < board.size(); i++) {
+            if ((matched[i >>> 3] & (1 << (i & 7))) != 0) {
+                board.setMatched(i, true);
+            }
+        }
+        engine.resume(turns, firstIndex, secondIndex);
+    }
+
+    // Getters for the snapshot contents
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getFaceCount() {
+        return faceCount;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    public int getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public boolean isAssisted() {
+        return assisted;
+    }
+
+    public String getLevel() {
+        return level;
+    }
+}
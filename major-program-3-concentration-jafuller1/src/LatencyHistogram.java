@@ -0,0 +1,120 @@
+import java.util.Arrays;
+
+/**
+ * LatencyHistogram records latencies in nanoseconds in log-linear buckets, in the style of HdrHistogram.
+ * Every power of two is split into 64 equal buckets, so a recorded value is off by less than 1.6%, and
+ * the whole histogram is one fixed array no matter how many values it holds. Recording is not thread
+ * safe; give every thread its own histogram and merge them when reading.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7; // Values below 128 get a bucket each
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2; // Buckets per power of two above 128
+    private static final int MAX_SHIFT = 40; // Values up to about 2^47 ns (39 hours) are kept apart
+
+    private final long[] counts = new long[SUB_BUCKETS + MAX_SHIFT * HALF]; // Values recorded per bucket
+    private long count; // Number of values recorded
+    private long total; // Sum of all values
+    private long min = Long.MAX_VALUE; // Smallest value recorded
+    private long max; // Largest value recorded
+
+    /**
+     * Records one value.
+     *
+     * @param nanos The latency in nanoseconds, negative values count as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[indexOf(value)]++;
+        count++;
+        total += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds every value of another histogram to this one.
+     *
+     * @param other The histogram to add
+     */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Drops every recorded value.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * Returns the value at or below which the given percent of the recorded values fall. The result is the
+     * top of the bucket holding that value, and never more than the largest value recorded.
+     *
+     * @param percent The percentile, for example 99.9
+     * @return The latency in nanoseconds, or 0 when nothing was recorded
+     */
+    public long percentile(double percent) {
+        long target = Math.max(1, (long) Math.ceil(count * percent / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(max, highestValueAt(i));
+            }
+        }
+        return max;
+    }
+
+    // Bucket of a value
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1); // Leaves 7 significant bits
+        if (shift > MAX_SHIFT) {
+            return SUB_BUCKETS + MAX_SHIFT * HALF - 1; // Beyond the range, count it in the last bucket
+        }
+        int top = (int) (value >>> shift); // Between 64 and 127
+        return SUB_BUCKETS + (shift - 1) * HALF + (top - HALF);
+    }
+
+    // Largest value that falls into a bucket
+    private static long highestValueAt(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        long top = (index - SUB_BUCKETS) % HALF + HALF;
+        return ((top + 1) << shift) - 1;
+    }
+
+    // Getters for the summary values
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+}
@@ -0,0 +1,237 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Level is one entry of the level catalog: the size of the card grid, whether the board is drawn on a
+ * canvas, and optionally a deck of its own. The catalog is read once from levels.txt in the working
+ * directory (or the file given with -Dlevels.file), and otherwise from the levels.txt shipped with the
+ * game. Each line of the catalog is
+ *
+ *   label, rows x cols [, canvas] [, deck=path]
+ *
+ * where canvas draws the board on one canvas instead of the card grid (boards bigger than the card grid
+ * always are), and deck names a folder or zip of image_N.png faces
+ * that is streamed rather than decoded whole (see StreamedDeck). Blank lines and lines starting with # are
+ * skipped.
+ */
+public final class Level {
+    public static final String DEFAULT_FILE = "levels.txt"; // Catalog file, also the shipped resource
+    private static final int MAX_SIDE = 255; // Longest side a board may have
+
+    private static Level[] catalog; // Every level in catalog order, read on first use
+
+    private final int ordinal; // Position in the catalog
+    private final String label; // Name shown in the level selector
+    private final int rows; // Number of rows in the card grid
+    private final int cols; // Number of columns in the card grid
+    private final boolean marathon; // Whether the board is too big for the card grid
+    private final String deck; // Folder or zip of the level's own deck, or null for the default deck
+
+    // Constructor that accepts every field of a catalog entry
+    private Level(int ordinal, String label, int rows, int cols, boolean marathon, String deck) {
+        this.ordinal = ordinal;
+        this.label = label;
+        this.rows = rows;
+        this.cols = cols;
+        this.marathon = marathon;
+        this.deck = deck;
+    }
+
+    /**
+     * Returns every level of the catalog, reading the catalog on first use.
+     *
+     * @return The levels in catalog order
+     */
+    public static synchronized Level[] values() {
+        if (catalog == null) {
+            catalog = loadCatalog();
+        }
+        return catalog.clone();
+    }
+
+    /**
+     * Returns the first level of the catalog, which new players start on.
+     *
+     * @return The first Level
+     */
+    public static Level first() {
+        return values()[0];
+    }
+
+    // Reads the catalog file, falling back to the shipped catalog when there is none or it is broken
+    private static Level[] loadCatalog() {
+        Path file = Paths.get(System.getProperty("levels.file", DEFAULT_FILE));
+        if (Files.isRegularFile(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                return parse(reader);
+            } catch (IOException e) {
+                System.out.println("Error: Could not read " + file + ", using the standard levels: "
+                        + e.getMessage());
+            }
+        }
+        try (InputStream in = Level.class.getResourceAsStream("/" + DEFAULT_FILE)) {
+            if (in == null) {
+                throw new IllegalStateException(DEFAULT_FILE + " is missing from the game");
+            }
+            return parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the shipped " + DEFAULT_FILE, e);
+        }
+    }
+
+    /**
+     * Reads a level catalog.
+     *
+     * @param reader The catalog text
+     * @return The levels in the order they are listed
+     * @throws IOException If the text cannot be read or a line is not a valid level
+     */
+    public static Level[] parse(Reader reader) throws IOException {
+        List<Level> levels = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue; // Skip blank lines and comments
+            }
+            String[] parts = line.split(",");
+            if (parts.length < 2) {
+                throw new IOException("Line " + lineNumber + ": expected \"label, rows x cols\"");
+            }
+            String[] size = parts[1].trim().toLowerCase().split("\\s*x\\s*");
+            int rows;
+            int cols;
+            try {
+                rows = Integer.parseInt(size[0]);
+                cols = Integer.parseInt(size[size.length - 1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + lineNumber + ": bad board size " + parts[1].trim());
+            }
+            if (size.length != 2 || rows < 1 || cols < 1 || rows > MAX_SIDE || cols > MAX_SIDE
+                    || (rows * cols) % 2 != 0) {
+                throw new IOException("Line " + lineNumber + ": a board needs an even number of cards and at most "
+                        + MAX_SIDE + " per side");
+            }
+
+            boolean marathon = false;
+            String deck = null;
+            for (int i = 2; i < parts.length; i++) {
+                String option = parts[i].trim();
+                if (option.equals("canvas")) {
+                    marathon = true;
+                } else if (option.startsWith("deck=")) {
+                    deck = option.substring(5).trim();
+                } else {
+                    throw new IOException("Line " + lineNumber + ": unknown option " + option);
+                }
+            }
+            levels.add(new Level(levels.size(), parts[0].trim(), rows, cols, marathon, deck));
+        }
+        if (levels.isEmpty()) {
+            throw new IOException("The catalog lists no levels");
+        }
+        return levels.toArray(new Level[0]);
+    }
+
+    /**
+     * Finds the level with the given selector label.
+     *
+     * @param label The label shown in the level selector
+     * @return The matching Level, or the first level if no level has that label
+     */
+    public static Level fromLabel(String label) {
+        for (Level level : values()) {
+            if (level.label.equals(label)) {
+                return level;
+            }
+        }
+        return first();
+    }
+
+    /**
+     * Finds the level a saved or recorded game was played on: the level with that label and grid size, or
+     * the first level of that size when the label is unknown or no longer in the catalog.
+     *
+     * @param label The label of the level
+     * @param rows  The number of rows
+     * @param cols  The number of columns
+     * @return The matching Level, or null if no level has that size
+     */
+    public static Level find(String label, int rows, int cols) {
+        for (Level level : values()) {
+            if (level.label.equals(label) && level.rows == rows && level.cols == cols) {
+                return level;
+            }
+        }
+        return forSize(rows, cols);
+    }
+
+    /**
+     * Finds the first level in the catalog with the given grid size.
+     *
+     * @param rows The number of rows
+     * @param cols The number of columns
+     * @return The matching Level, or null if no level has that size
+     */
+    public static Level forSize(int rows, int cols) {
+        for (Level level : values()) {
+            if (level.rows == rows && level.cols == cols) {
+                return level;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the level after this one, or this level if it is the last one.
+     *
+     * @return The next Level
+     */
+    public Level next() {
+        Level[] levels = values();
+        return levels[Math.min(ordinal + 1, levels.length - 1)];
+    }
+
+    // Position of the level in the catalog
+    public int ordinal() {
+        return ordinal;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public boolean isMarathon() {
+        return marathon;
+    }
+
+    // Folder or zip of the level's own deck, or null when it uses the default deck
+    public String getDeck() {
+        return deck;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
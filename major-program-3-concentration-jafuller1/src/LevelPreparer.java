@@ -0,0 +1,210 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToIntFunction;
+
+/**
+ * LevelPreparer builds shuffled card layouts on a background thread, so the FX thread only has to swap
+ * the finished layout into the grid. It can also prepare a level ahead of time, such as the level after
+ * the one being played. Levels with a deck of their own only decode the faces their layout deals. The
+ * Solver table for the layout's size is built alongside, so hints never build it on the FX thread.
+ */
+public class LevelPreparer {
+    private final ExecutorService executor; // Background thread that builds the layouts
+    private final Map<Level, CompletableFuture<PreparedLevel>> prefetched; // Layouts built ahead of time
+    private final ToIntFunction<Level> faceSizes; // Size in pixels the faces of a level are drawn at
+
+    // Constructor that accepts the size faces of each level are drawn at, and starts the background thread
+    public LevelPreparer(ToIntFunction<Level> faceSizes) {
+        this.faceSizes = faceSizes;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "level-preparer");
+            thread.setDaemon(true); // Do not keep the program alive
+            return thread;
+        });
+        this.prefetched = new HashMap<>();
+    }
+
+    // Runs work on the preparer's background thread, in the order it was handed in
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Decodes the default deck at a face size in the background, so the first board drawn at that size
+     * does not have to wait for it.
+     *
+     * @param size The size in pixels faces will be drawn at
+     */
+    public void prefetchDeck(int size) {
+        executor.execute(() -> CardDeck.getDefault().forSize(size));
+    }
+
+    /**
+     * Returns a layout for the level, using one prepared ahead of time if there is one.
+     *
+     * @param level The level to prepare
+     * @return A future completed with the prepared layout
+     */
+    public synchronized CompletableFuture<PreparedLevel> prepare(Level level) {
+        CompletableFuture<PreparedLevel> future = prefetched.remove(level);
+        if (future == null) {
+            future = submit(level);
+        }
+        return future;
+    }
+
+    /**
+     * Prepares a level with a given seed, for example to replay a recorded game. The result is always
+     * built fresh rather than taken from the layouts prepared ahead of time.
+     *
+     * @param level The level to prepare
+     * @param seed  The seed of the layout
+     * @return A future completed with the prepared layout
+     */
+    public CompletableFuture<PreparedLevel> prepare(Level level, long seed) {
+        int faceSize = faceSizes.applyAsInt(level);
+        return CompletableFuture.supplyAsync(() -> withSolver(build(level, seed, faceSize)), executor);
+    }
+
+    /**
+     * Starts preparing a level in the background so a later call to prepare finds it ready.
+     *
+     * @param level The level to prepare ahead of time
+     */
+    public synchronized void prefetch(Level level) {
+        if (!prefetched.containsKey(level)) {
+            prefetched.put(level, submit(level));
+        }
+    }
+
+    /**
+     * Drops the layouts prepared ahead of time, for example because they were dealt from a deck that is
+     * no longer used.
+     */
+    public synchronized void clearPrefetched() {
+        prefetched.clear();
+    }
+
+    // Builds the layout for a level on the background thread
+    private CompletableFuture<PreparedLevel> submit(Level level) {
+        long seed = ThreadLocalRandom.current().nextLong(); // Pick the seed now so it can be recorded
+        int faceSize = faceSizes.applyAsInt(level);
+        return CompletableFuture.supplyAsync(() -> withSolver(build(level, seed, faceSize)), executor);
+    }
+
+    // Makes sure the Solver for the layout's size is built, it is cached from then on
+    private static PreparedLevel withSolver(PreparedLevel prepared) {
+        Solver.forPairs(prepared.getBoard().size() / 2);
+        return prepared;
+    }
+
+    /**
+     * Returns how many different faces a layout of the level is dealt from, which is what a server needs
+     * to deal the same layout. Opens the level's deck if it is not open yet.
+     *
+     * @param level The level
+     * @return The number of faces the level's layouts use
+     */
+    public static int faceCount(Level level) {
+        if (level.getDeck() == null) {
+            return CardDeck.getDefault().getFaceCount();
+        }
+        return StreamedDeck.open(level.getDeck()).facesFor(level.getRows() * level.getCols());
+    }
+
+    /**
+     * Builds a shuffled layout for a level with its faces decoded at the size they are drawn at, so the
+     * view showing it does not decode anything. Levels without a deck of their own are dealt from the
+     * default deck. Otherwise one face per pair is picked from the level's deck and only those are decoded,
+     * so the time taken and the memory held follow the number of cards rather than the size of the deck.
+     *
+     * @param level    The level to build
+     * @param seed     The seed of the layout
+     * @param faceSize The size in pixels the faces are drawn at, or 0 to decode them at their own size
+     * @return The prepared layout
+     */
+    public static PreparedLevel build(Level level, long seed, int faceSize) {
+        if (level.getDeck() == null) {
+            PreparedLevel prepared = build(level.getRows(), level.getCols(), seed);
+            prepared.getDeck().forSize(faceSize); // Kept with the deck, where the view finds it
+            return prepared;
+        }
+        long start = System.nanoTime();
+        int cards = level.getRows() * level.getCols();
+        StreamedDeck source = StreamedDeck.open(level.getDeck());
+        int faceCount = source.facesFor(cards);
+
+        int[] faces = dealFaces(cards, faceCount, new Random(seed));
+        CardDeck deck = source.deal(faceCount, seed, faceSize);
+        return new PreparedLevel(new Board(level.getRows(), level.getCols(), faces), deck, seed,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Builds a shuffled layout of face pairs for a grid with a random seed.
+     *
+     * @param rows The number of rows in the grid
+     * @param cols The number of columns in the grid
+     * @return The prepared layout
+     */
+    public static PreparedLevel build(int rows, int cols) {
+        return build(rows, cols, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Builds a shuffled layout of face pairs for a grid and makes sure the deck is decoded. The same
+     * size, deck and seed always give the same layout.
+     *
+     * @param rows The number of rows in the grid
+     * @param cols The number of columns in the grid
+     * @param seed The seed of the shuffle
+     * @return The prepared layout
+     */
+    public static PreparedLevel build(int rows, int cols, long seed) {
+        long start = System.nanoTime();
+        CardDeck deck = CardDeck.getDefault(); // Decodes the deck the first time it is used
+
+        int[] faces = dealFaces(rows * cols, deck.getFaceCount(), new Random(seed));
+        return new PreparedLevel(new Board(rows, cols, faces), deck, seed, System.nanoTime() - start);
+    }
+
+    /**
+     * Lays out pairs of face ids and shuffles them in place.
+     *
+     * @param count  The number of cards to deal
+     * @param random The source of randomness for the shuffle
+     * @return The face id of every card
+     */
+    public static int[] dealFaces(int count, Random random) {
+        return dealFaces(count, Integer.MAX_VALUE, random);
+    }
+
+    /**
+     * Lays out pairs of face ids and shuffles them in place. Boards with more pairs than the deck has
+     * faces reuse faces, so some faces appear on several pairs.
+     *
+     * @param count     The number of cards to deal
+     * @param faceCount The number of faces in the deck
+     * @param random    The source of randomness for the shuffle
+     * @return The face id of every card
+     */
+    public static int[] dealFaces(int count, int faceCount, Random random) {
+        int[] faces = new int[count];
+        for (int i = 0; i < faces.length; i++) {
+            faces[i] = (i / 2) % faceCount;
+        }
+        for (int i = faces.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = faces[i];
+            faces[i] = faces[j];
+            faces[j] = tmp;
+        }
+        return faces;
+    }
+}
@@ -0,0 +1,224 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LoadTest drives a GameServer with bot players over localhost sockets and reports how many games and
+ * moves it handles per second, along with the round-trip latency of every move. Unless --server is given,
+ * it starts its own server in the same process on a free port, so it runs fully offline.
+ *
+ * Every bot keeps one connection and plays whole games on a level picked at random, like a player using
+ * the level selector. With --rate the bots together start that many games per second; games are started
+ * on a fixed schedule, so a slow server makes the bots late instead of quietly lowering the rate.
+ *
+ * Usage: java LoadTest [--bots N] [--rate games/sec, 0 for flat out] [--duration seconds]
+ *                      [--level all|1-6] [--strategy random|perfect|limited:N] [--seed S]
+ *                      [--server host:port] [--server-threads N]
+ */
+public class LoadTest {
+    private static final int FACE_COUNT = 36; // Faces in the deck shipped with the game
+
+    private int bots = Runtime.getRuntime().availableProcessors(); // Concurrent bot players
+    private double rate; // Games started per second by all bots together, 0 for as fast as possible
+    private double duration = 10; // Seconds to run
+    private List<Level> levels = standardLevels(); // Levels the bots pick from
+    private String strategy = "perfect"; // Bot strategy
+    private long seed = 1; // Seed for the bots' level picks and moves
+    private String server; // Address of an external server, or null to start one here
+    private int serverThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2); // Selector threads
+
+    private final LongAdder games = new LongAdder(); // Games finished
+    private final LongAdder moves = new LongAdder(); // Flips sent
+    private final LongAdder lateStarts = new LongAdder(); // Games started behind schedule
+    private final LongAdder failures = new LongAdder(); // Bots that lost their connection
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadTest test = new LoadTest();
+        test.parseArgs(args);
+        test.run();
+    }
+
+    // Reads the command line options
+    private void parseArgs(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--bots":
+                    bots = Integer.parseInt(value);
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(value);
+                    break;
+                case "--duration":
+                    duration = Double.parseDouble(value);
+                    break;
+                case "--level":
+                    levels = value.equals("all")
+                            ? standardLevels()
+                            : List.of(Level.values()[Integer.parseInt(value) - 1]);
+                    break;
+                case "--strategy":
+                    Bot.forStrategy(value); // Fail early on an unknown strategy
+                    strategy = value;
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--server":
+                    server = value;
+                    break;
+                case "--server-threads":
+                    serverThreads = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    /**
+     * Runs the bots for the configured duration and prints the results.
+     */
+    public void run() throws IOException, InterruptedException {
+        GameServer local = null;
+        String address = server;
+        if (address == null) {
+            local = new GameServer(0, serverThreads);
+            Thread serverThread = new Thread(local, "game-server-accept");
+            serverThread.setDaemon(true);
+            serverThread.start();
+            address = "localhost:" + local.getPort();
+        }
+        System.out.printf("%d bots, %s, rate %s, %.0f s against %s%n", bots, strategy,
+                rate > 0 ? rate + " games/s" : "unlimited", duration, address);
+
+        long start = System.nanoTime();
+        long end = start + (long) (duration * 1e9);
+        List<BotPlayer> players = new ArrayList<>();
+        for (int i = 0; i < bots; i++) {
+            BotPlayer player = new BotPlayer(i, GameClient.connect(address), start, end);
+            players.add(player);
+            player.start();
+        }
+
+        LatencyHistogram latency = new LatencyHistogram();
+        for (BotPlayer player : players) {
+            player.join();
+            latency.merge(player.latency);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (local != null) {
+            local.close();
+        }
+
+        System.out.printf("games=%d moves=%d games/s=%.0f moves/s=%.0f late_starts=%d failed_bots=%d%n",
+                games.sum(), moves.sum(), games.sum() / seconds, moves.sum() / seconds, lateStarts.sum(),
+                failures.sum());
+        System.out.printf("move latency us: min=%.1f p50=%.1f p99=%.1f p99.9=%.1f max=%.1f mean=%.1f%n",
+                latency.getMin() / 1e3, latency.percentile(50) / 1e3, latency.percentile(99) / 1e3,
+                latency.percentile(99.9) / 1e3, latency.getMax() / 1e3, latency.getMean() / 1e3);
+    }
+
+    // Every level of the catalog except the marathon boards
+    private static List<Level> standardLevels() {
+        List<Level> standard = new ArrayList<>();
+        for (Level level : Level.values()) {
+            if (!level.isMarathon()) {
+                standard.add(level);
+            }
+        }
+        return standard;
+    }
+
+    /**
+     * BotPlayer is one bot on its own thread and connection, playing games until the run ends.
+     */
+    private class BotPlayer extends Thread {
+        private final GameClient client; // Connection to the server
+        private final RemoteGameEngine engine; // Mirrors the server's game so the bot can pick cards
+        private final Bot bot;
+        private final Random random; // Level picks and the bot's random moves
+        private final LatencyHistogram latency = new LatencyHistogram(); // Round trip of every flip
+        private final long start; // When the run started
+        private final long end; // When the run stops
+        private final long interval; // Nanoseconds between this bot's game starts, 0 for none
+
+        BotPlayer(int id, GameClient client, long start, long end) {
+            super("load-bot-" + id);
+            setDaemon(true);
+            this.client = client;
+            this.engine = new RemoteGameEngine(client);
+            this.bot = Bot.forStrategy(strategy);
+            this.random = new Random(seed + id);
+            this.start = start + (rate > 0 ? (long) (id * 1e9 / rate) : 0); // Spread the bots out
+            this.end = end;
+            this.interval = rate > 0 ? (long) (bots * 1e9 / rate) : 0;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (long game = 0; ; game++) {
+                    long due = start + game * interval;
+                    long now = System.nanoTime();
+                    if (due >= end || now >= end) {
+                        break;
+                    }
+                    if (due > now) {
+                        LockSupport.parkNanos(due - now); // Wait for this game's slot
+                    } else if (interval > 0 && now - due > interval) {
+                        lateStarts.increment();
+                    }
+                    if (!play(levels.get(random.nextInt(levels.size())))) {
+                        failures.increment();
+                        break;
+                    }
+                    games.increment();
+                }
+            } finally {
+                engine.close();
+            }
+        }
+
+        // Plays one game to the end, returning false if the connection failed
+        private boolean play(Level level) {
+            int rows = level.getRows();
+            int cols = level.getCols();
+            long gameSeed;
+            try {
+                gameSeed = engine.requestGame(rows, cols, FACE_COUNT);
+            } catch (RuntimeException e) {
+                return false;
+            }
+            Board board = new Board(rows, cols, LevelPreparer.dealFaces(rows * cols, FACE_COUNT,
+                    new Random(gameSeed)));
+            engine.newGame(board);
+            bot.newGame(board, random);
+
+            int flips = 0;
+            while (!engine.isComplete() && engine.isConnected()) {
+                int first = bot.pickFirst();
+                flip(first);
+                bot.saw(first);
+                int second = bot.pickSecond(first);
+                flip(second);
+                bot.saw(second);
+                engine.resolveTurn();
+                bot.turnEnded(first, second);
+                flips += 2;
+            }
+            moves.add(flips);
+            return engine.isConnected();
+        }
+
+        // Flips a card and records the round trip
+        private void flip(int index) {
+            long sent = System.nanoTime();
+            engine.flip(index);
+            latency.record(System.nanoTime() - sent);
+        }
+    }
+}
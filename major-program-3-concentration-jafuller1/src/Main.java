@@ -14,9 +14,28 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
 public class Main extends Application {
     @Override
     public void start(Stage stage) throws Exception {
+        // java Main --tournament 16 [level number] [strategy] shows bots playing many boards at once
+        List<String> args = getParameters().getRaw();
+        if (args.size() >= 2 && args.get(0).equals("--tournament")) {
+            Level level = args.size() >= 3
+                    ? Level.values()[Integer.parseInt(args.get(2)) - 1] : Level.fromLabel("Level 6");
+            String strategy = args.size() >= 4 ? args.get(3) : "limited:8";
+            TournamentView tournament = new TournamentView(Integer.parseInt(args.get(1)), level, strategy, 180);
+            stage.setTitle("Concentration Tournament");
+            stage.setScene(new Scene(tournament, 1000, 800));
+            stage.setOnHidden(e -> tournament.stop());
+            stage.show();
+            return;
+        }
 
         // Create an instance of the custom GamePane with a card size of 60 pixels
         GamePane gamePane = new GamePane(85);
@@ -26,7 +45,28 @@ public class Main extends Application {
         stage.setTitle("Concentration");
         //Sets the stage with the created scene
         stage.setScene(scene);
+        // Release the audio lines and the move log when the window closes
+        stage.setOnHidden(e -> gamePane.shutdown());
         stage.show();
+
+        // -Dspectator=true opens a second window that watches the game through the spectator feed
+        if (Boolean.getBoolean("spectator")) {
+            SpectatorView spectator = new SpectatorView(gamePane.getSpectatorFeed(), 40, 400);
+            spectator.setDeck(gamePane.getDeck());
+            gamePane.setOnDeckChanged(spectator::setDeck); // Streamed levels and themes have faces of their own
+            Stage spectatorStage = new Stage();
+            spectatorStage.setTitle("Concentration Spectator");
+            spectatorStage.setScene(new Scene(spectator, 440, 440));
+            spectatorStage.setOnHidden(e -> spectator.stop());
+            spectatorStage.show();
+        }
+
+        // java Main --replay game.cml plays a recorded game back
+        if (args.size() >= 2 && args.get(0).equals("--replay")) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(Paths.get(args.get(1))))) {
+                gamePane.replay(MoveLog.read(in));
+            }
+        }
     }
     public static void main(String[] args){
         launch(args);
@@ -0,0 +1,133 @@
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metrics is an in-process registry of named timers. Each timer keeps a LatencyHistogram of the durations
+ * recorded under its name, so percentiles can be read while the game runs without attaching a profiler.
+ * Timers are created on first use and are safe to record into from any thread.
+ */
+public class Metrics {
+    // Names of the timers the game records
+    public static final String FLIP = "flip"; // Mouse press until the flipped card shows its face
+    public static final String PREPARE_LEVEL = "prepareLevel."; // Dealing and decoding a layout, per level
+    public static final String INIT_CARDS = "initCards."; // Swapping a level into the board, per level
+    public static final String DECODE = "image.decode"; // Decoding one image
+    public static final String SOUND_START = "sound.start"; // Asking for a sound until it starts playing
+    public static final String PULSE = "fx.pulse"; // CSS and layout work of one FX pulse
+    public static final String HINT = "solver.hint"; // Working out the suggested next card
+    public static final String SNAPSHOT = "snapshot.save"; // Packing the game into a snapshot after a turn
+    public static final String STARTUP = "startup.interactive"; // Launch until the first board takes clicks
+
+    private static final Metrics SHARED = new Metrics(); // Registry used by the whole program
+
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * Timer is one named series of durations.
+     */
+    public static final class Timer {
+        private final String name;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private volatile long last; // Most recent duration
+
+        private Timer(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Records one duration.
+         *
+         * @param nanos The duration in nanoseconds
+         */
+        public void record(long nanos) {
+            last = nanos;
+            synchronized (histogram) {
+                histogram.record(nanos);
+            }
+        }
+
+        /**
+         * Returns a percentile of the recorded durations.
+         *
+         * @param percent The percentile, for example 99
+         * @return The duration in nanoseconds
+         */
+        public long percentile(double percent) {
+            synchronized (histogram) {
+                return histogram.percentile(percent);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getLast() {
+            return last;
+        }
+
+        public long getCount() {
+            synchronized (histogram) {
+                return histogram.getCount();
+            }
+        }
+
+        public long getMax() {
+            synchronized (histogram) {
+                return histogram.getMax();
+            }
+        }
+
+        @Override
+        public String toString() {
+            synchronized (histogram) {
+                return String.format("%s: n=%d p50=%.2f p99=%.2f max=%.2f ms", name, histogram.getCount(),
+                        histogram.percentile(50) / 1e6, histogram.percentile(99) / 1e6, histogram.getMax() / 1e6);
+            }
+        }
+    }
+
+    /**
+     * Returns the registry shared by the whole program.
+     *
+     * @return The shared Metrics
+     */
+    public static Metrics getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the timer with a name, creating it on first use.
+     *
+     * @param name The name of the timer
+     * @return The Timer
+     */
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, Timer::new);
+    }
+
+    /**
+     * Records a duration in the timer with a name.
+     *
+     * @param name  The name of the timer
+     * @param nanos The duration in nanoseconds
+     */
+    public void record(String name, long nanos) {
+        timer(name).record(nanos);
+    }
+
+    // Every timer, sorted by name
+    public Map<String, Timer> getTimers() {
+        return new TreeMap<>(timers);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Timer timer : getTimers().values()) {
+            text.append(timer).append('\n');
+        }
+        return text.toString();
+    }
+}
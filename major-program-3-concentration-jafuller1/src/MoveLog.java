@@ -0,0 +1,188 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * MoveLog records a game as a compact append-only binary log. The header holds the board size, the number
+ * of faces in the deck and the shuffle seed, which together rebuild the exact layout, then the label of the
+ * level, which tells levels of the same size apart. Each flip after that is two variable-length numbers:
+ * milliseconds since the previous flip and the card index, usually three or four bytes in total.
+ */
+public class MoveLog implements Closeable {
+    public static final int MAGIC = 0x434D4C31; // "CML1" at the start of every log
+
+    private final DataOutputStream out; // Stream the log is appended to
+    private long lastFlipNanos; // Monotonic time of the previous flip, or of the start of the game
+
+    /**
+     * Starts a log by writing its header.
+     *
+     * @param out       The stream to write the log to
+     * @param rows      The number of rows on the board
+     * @param cols      The number of columns on the board
+     * @param faceCount The number of faces in the deck the board was dealt from
+     * @param seed      The seed the board was shuffled with
+     * @param level     The label of the level being played
+     */
+    public MoveLog(OutputStream out, int rows, int cols, int faceCount, long seed, String level)
+            throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.out.writeInt(MAGIC);
+        writeVarInt(rows);
+        writeVarInt(cols);
+        writeVarInt(faceCount);
+        this.out.writeLong(seed);
+        byte[] label = level.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(label.length);
+        this.out.write(label);
+        this.out.flush();
+        this.lastFlipNanos = System.nanoTime(); // Not the wall clock, which can step backwards
+    }
+
+    /**
+     * Appends one flip to the log and flushes it, so the log is complete even if the game crashes.
+     *
+     * @param index The index of the flipped card
+     */
+    public void recordFlip(int index) throws IOException {
+        long millis = (System.nanoTime() - lastFlipNanos) / 1_000_000;
+        writeVarInt((int) Math.min(Integer.MAX_VALUE, millis));
+        writeVarInt(index);
+        out.flush();
+        lastFlipNanos += millis * 1_000_000; // Keep the remainder so rounding does not add up over a game
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    // Writes a non-negative int in 7-bit groups, low group first, with the high bit set on all but the last
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Reads a whole log.
+     *
+     * @param in The stream holding the log
+     * @return The recorded game
+     */
+    public static Recording read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a move log");
+        }
+        int rows = readVarInt(data);
+        int cols = readVarInt(data);
+        int faceCount = readVarInt(data);
+        long seed = data.readLong();
+        byte[] label = new byte[readVarInt(data)];
+        data.readFully(label);
+        Recording recording = new Recording(rows, cols, faceCount, seed, new String(label, StandardCharsets.UTF_8));
+        while (true) {
+            int delay;
+            try {
+                delay = readVarInt(data);
+            } catch (EOFException e) {
+                break; // Clean end of the log
+            }
+            try {
+                recording.add(delay, readVarInt(data));
+            } catch (EOFException e) {
+                break; // The last flip was cut short, keep everything before it
+            }
+        }
+        return recording;
+    }
+
+    // Reads a number written by writeVarInt
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed number in move log");
+    }
+
+    /**
+     * Recording is a game read back from a move log.
+     */
+    public static class Recording {
+        private final int rows, cols; // Size of the board
+        private final int faceCount; // Number of faces in the deck
+        private final long seed; // Seed the board was shuffled with
+        private final String level; // Label of the level played
+        private int[] delays = new int[64]; // Milliseconds before each flip
+        private int[] flips = new int[64]; // Index of each flipped card
+        private int count; // Number of flips
+
+        public Recording(int rows, int cols, int faceCount, long seed, String level) {
+            this.rows = rows;
+            this.cols = cols;
+            this.faceCount = faceCount;
+            this.seed = seed;
+            this.level = level;
+        }
+
+        // Adds a flip to the end of the recording
+        void add(int delay, int index) {
+            if (count == flips.length) {
+                delays = Arrays.copyOf(delays, count * 2);
+                flips = Arrays.copyOf(flips, count * 2);
+            }
+            delays[count] = delay;
+            flips[count] = index;
+            count++;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getCols() {
+            return cols;
+        }
+
+        public int getFaceCount() {
+            return faceCount;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public String getLevel() {
+            return level;
+        }
+
+        public int getFlipCount() {
+            return count;
+        }
+
+        // Index of the card flipped by the n-th flip
+        public int getFlip(int n) {
+            return flips[n];
+        }
+
+        // Milliseconds between the previous flip and the n-th flip
+        public int getDelay(int n) {
+            return delays[n];
+        }
+    }
+}
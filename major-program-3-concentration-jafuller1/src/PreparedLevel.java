@@ -0,0 +1,47 @@
+/**
+ * PreparedLevel is a shuffled card layout whose faces are already decoded, ready to be swapped into a
+ * CardGridPane in a single step.
+ */
+public class PreparedLevel {
+    private final Board board; // Shuffled board with every card face down
+    private final CardDeck deck; // Deck holding the decoded faces
+    private final long seed; // Seed the layout was shuffled with
+    private final long prepareNanos; // Time spent building the layout
+
+    // Constructor that accepts the layout, its seed and how long it took to build
+    public PreparedLevel(Board board, CardDeck deck, long seed, long prepareNanos) {
+        this.board = board;
+        this.deck = deck;
+        this.seed = seed;
+        this.prepareNanos = prepareNanos;
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    public int getRows() {
+        return board.getRows();
+    }
+
+    public int getCols() {
+        return board.getCols();
+    }
+
+    public CardDeck getDeck() {
+        return deck;
+    }
+
+    // Face id of the card at the given row and column
+    public int getFace(int row, int col) {
+        return board.getFace(board.index(row, col));
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getPrepareNanos() {
+        return prepareNanos;
+    }
+}
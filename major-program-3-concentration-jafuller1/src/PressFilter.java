@@ -0,0 +1,54 @@
+/**
+ * PressFilter decides which card presses reach the game. It is shared by the board views so that
+ * debouncing lives in one place: a second press on the same card within the debounce time, the extra
+ * presses of a double click, and mouse events synthesized from a touch that was already handled are all
+ * dropped.
+ */
+public class PressFilter {
+    // Presses on the same card closer together than this are treated as one, -DpressFilter.debounce=<ms>
+    public static final long DEFAULT_DEBOUNCE_MILLIS = Long.getLong("pressFilter.debounce", 150);
+
+    private final long debounceNanos; // Debounce time in nanoseconds
+    private int lastIndex = -1; // Card of the last press that was let through
+    private long lastNanos; // When that press happened
+    private long dropped; // Number of presses dropped
+
+    // Default constructor uses the default debounce time
+    public PressFilter() {
+        this(DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    // Constructor that accepts the debounce time in milliseconds
+    public PressFilter(long debounceMillis) {
+        this.debounceNanos = debounceMillis * 1_000_000;
+    }
+
+    /**
+     * Checks a press and remembers it if it is let through.
+     *
+     * @param index      The board index of the pressed card
+     * @param clickCount The click count of the event, above 1 for the later clicks of a multi-click
+     * @param now        The time of the press from System.nanoTime()
+     * @return true if the press should reach the game
+     */
+    public boolean accept(int index, int clickCount, long now) {
+        if (clickCount > 1 || (index == lastIndex && now - lastNanos < debounceNanos)) {
+            dropped++;
+            return false;
+        }
+        lastIndex = index;
+        lastNanos = now;
+        return true;
+    }
+
+    /**
+     * Forgets the last press, for example when a new board is shown.
+     */
+    public void reset() {
+        lastIndex = -1;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+}
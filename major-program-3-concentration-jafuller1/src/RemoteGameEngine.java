@@ -0,0 +1,190 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntSupplier;
+
+/**
+ * RemoteGameEngine plays a game hosted by a GameServer. The board is dealt locally from the seed the server
+ * chose, so the view can show it as usual, but every flip is also sent to the server, which applies the
+ * rules and counts the turns. If the two ever disagree, the server's turn count is shown.
+ *
+ * In the game window the round trips run on a thread of their own and the replies are applied on the FX
+ * thread, so a slow server never holds up a flip. If the connection is lost, the game carries on locally
+ * and the next new game tries to connect again.
+ */
+public class RemoteGameEngine extends GameEngine {
+    private final String address; // Server to connect to again after losing it, or null to stay offline
+    private final Executor sender; // Runs the round trips to the server, in the order the flips were made
+    private final Executor replies; // Applies the server's replies
+    private volatile GameClient client; // Connection to the server
+    private volatile boolean connected = true; // False once the connection failed, the game then continues locally
+    private volatile boolean closed; // Whether close was called, so no new connection is made
+    private int serverTurns; // Turn count reported by the server
+    private int game; // Counts games, so replies for an earlier game are ignored
+    private Runnable onReply = () -> { }; // Called after a reply was applied or the connection was lost
+
+    /**
+     * Creates an engine that talks to the server on the calling thread, so every flip waits for its reply.
+     *
+     * @param client A connected client
+     */
+    public RemoteGameEngine(GameClient client) {
+        this.address = null;
+        this.client = client;
+        this.sender = Runnable::run;
+        this.replies = Runnable::run;
+    }
+
+    /**
+     * Connects to a server and creates an engine whose flips are sent from a background thread.
+     *
+     * @param address The server as host:port
+     * @param replies Runs the code that applies each reply, for example Platform::runLater
+     * @throws IOException If the server cannot be reached
+     */
+    public RemoteGameEngine(String address, Executor replies) throws IOException {
+        this.address = address;
+        this.client = GameClient.connect(address);
+        this.sender = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "server-client");
+            thread.setDaemon(true); // Do not keep the program alive
+            return thread;
+        });
+        this.replies = replies;
+    }
+
+    /**
+     * Asks the server for a new game, connecting again first if the connection was lost. Blocks until the
+     * server answers, so call it off the FX thread.
+     *
+     * @param rows      The number of rows
+     * @param cols      The number of columns
+     * @param faceCount The number of faces in the deck
+     * @return The seed to deal the board with
+     */
+    public long requestGame(int rows, int cols, int faceCount) {
+        try {
+            if (!connected && address != null && !closed) {
+                closeClient();
+                client = GameClient.connect(address);
+                System.out.println("Connected to the game server at " + address + " again");
+            }
+            long seed = client.newGame(rows, cols, faceCount);
+            connected = true;
+            return seed;
+        } catch (IOException e) {
+            connected = false;
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Asks the server for a new game on the sending thread, after any flips still on their way.
+     *
+     * @param rows      The number of rows
+     * @param cols      The number of columns
+     * @param faceCount Works out the number of faces in the deck, on the sending thread
+     * @return A future completed with the seed, or exceptionally if the server cannot be reached
+     */
+    public CompletableFuture<Long> requestGameAsync(int rows, int cols, IntSupplier faceCount) {
+        return CompletableFuture.supplyAsync(() -> requestGame(rows, cols, faceCount.getAsInt()), sender);
+    }
+
+    @Override
+    public void newGame(Board board) {
+        super.newGame(board);
+        serverTurns = 0;
+        game++;
+    }
+
+    @Override
+    public int flip(int index) {
+        int result = super.flip(index); // Cheap local check, moves the rules reject never reach the server
+        if (result == IGNORED || !connected) {
+            return result;
+        }
+        int face = getBoard().getFace(index);
+        int outcome = result != SECOND ? NONE
+                : getBoard().getFace(getFirstIndex()) == face ? MATCH : MISMATCH;
+        int flipGame = game;
+        sender.execute(() -> send(flipGame, index, result, face, outcome));
+        return result;
+    }
+
+    // Sends one flip and hands the reply over to be applied
+    private void send(int flipGame, int index, int result, int face, int outcome) {
+        if (!connected) {
+            return; // Lost while this flip was waiting to be sent
+        }
+        try {
+            GameClient.FlipReply reply = client.flip(index);
+            int serverResult = reply.getResult(); // Copied, the reply object is reused by the next flip
+            int serverFace = reply.getFace();
+            int serverOutcome = reply.getOutcome();
+            int turns = reply.getTurnCount();
+            replies.execute(() -> {
+                if (flipGame != game) {
+                    return; // A new game started meanwhile
+                }
+                if (serverResult != result || serverFace != face) {
+                    System.out.println("Error: Server disagrees about card " + index);
+                } else if (serverOutcome != outcome) {
+                    System.out.println("Error: Server disagrees about the last turn");
+                }
+                serverTurns = turns;
+                onReply.run();
+            });
+        } catch (IOException e) {
+            if (connected) {
+                connected = false;
+                replies.execute(() -> {
+                    System.out.println("Error: Lost the game server, playing on locally: " + e.getMessage());
+                    onReply.run();
+                });
+            }
+        }
+    }
+
+    @Override
+    public int getTurnCount() {
+        return connected ? serverTurns : super.getTurnCount();
+    }
+
+    /**
+     * Sets the code to run after a reply from the server was applied or the connection was lost, on the
+     * replies executor.
+     *
+     * @param onReply Called with the engine's turn count up to date
+     */
+    public void setOnReply(Runnable onReply) {
+        this.onReply = onReply;
+    }
+
+    /**
+     * Closes the connection to the server.
+     */
+    public void close() {
+        closed = true;
+        connected = false;
+        if (sender instanceof ExecutorService) {
+            ((ExecutorService) sender).shutdown();
+        }
+        closeClient();
+    }
+
+    // Closes the current connection, reporting a failure
+    private void closeClient() {
+        try {
+            client.close();
+        } catch (IOException e) {
+            System.out.println("Error: Could not close the server connection: " + e.getMessage());
+        }
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+}
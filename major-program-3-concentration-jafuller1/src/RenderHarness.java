@@ -0,0 +1,338 @@
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point2D;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * RenderHarness plays scripted games in a real GamePane and checks the rendering against budgets. It is
+ * meant to run on a headless JavaFX platform such as Monocle with the software pipeline, which is what
+ * "mvn -Prender-perf verify" does.
+ *
+ * For every level it starts games through the level selector, then clicks every pair in order, one click
+ * per frame. It records the time between frames, the number of nodes in the scene and how much the heap
+ * grew. A spectator follows every game through the pane's SpectatorFeed and must end up seeing the same
+ * board as the player. If any level goes over a budget or the spectator disagrees, it exits with status 1.
+ *
+ * The pane saves scores and the game in progress like the real game does, so the harness points it at
+ * files of its own (-Dscores.file and -Dsnapshot.file, in a temporary folder unless given) and empties
+ * them first. The player's scores.dat and snapshot.dat are never touched.
+ *
+ * Usage: java RenderHarness [--level all|N] [--games N] [--clicks-per-frame N] [--max-frame-p99 ms]
+ *                           [--max-frame ms] [--max-nodes N] [--max-heap-growth MB]
+ */
+public class RenderHarness {
+    private List<Level> levels = new ArrayList<>(); // Levels to play
+    private int games = 3; // Games per level
+    private int clicksPerFrame = 1; // Clicks scripted into each frame
+    private double maxFrameP99 = 50; // Budget for the 99th percentile time between frames, in ms
+    private double maxFrame = 250; // Budget for the longest time between frames, in ms
+    private int maxNodes = 1000; // Budget for the nodes in the scene
+    private double maxHeapGrowth = 32; // Budget for the heap growth over a level's games, in MB
+
+    private GamePane gamePane; // Pane being driven
+    private SpectatorFeed.Subscriber spectator; // Follows the games through the spectator feed
+    private final SpectatorFeed.Mirror spectatorBoard = new SpectatorFeed.Mirror(); // What the spectator sees
+    private Stage stage; // Window holding the pane
+
+    public static void main(String[] args) throws Exception {
+        RenderHarness harness = new RenderHarness();
+        harness.parseArgs(args);
+        useOwnFiles();
+        CountDownLatch started = new CountDownLatch(1);
+        Platform.startup(started::countDown);
+        started.await();
+
+        boolean passed;
+        try {
+            passed = harness.run();
+        } finally {
+            Platform.exit();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    // Points the pane's score log and saved game at files only the harness uses, and starts them empty
+    private static void useOwnFiles() throws IOException {
+        Path dir = null;
+        for (String property : new String[] {"scores.file", "snapshot.file"}) {
+            if (System.getProperty(property) == null) {
+                if (dir == null) {
+                    dir = Files.createTempDirectory("render-harness");
+                }
+                System.setProperty(property, dir.resolve(property.replace(".file", ".dat")).toString());
+            }
+            Path file = Paths.get(System.getProperty(property));
+            Files.deleteIfExists(file); // A saved game would be resumed instead of the scripted one
+            Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".tmp"));
+        }
+    }
+
+    // Reads the command line options
+    private void parseArgs(String[] args) {
+        String level = "all";
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--level":
+                    level = value;
+                    break;
+                case "--games":
+                    games = Integer.parseInt(value);
+                    break;
+                case "--clicks-per-frame":
+                    clicksPerFrame = Integer.parseInt(value);
+                    break;
+                case "--max-frame-p99":
+                    maxFrameP99 = Double.parseDouble(value);
+                    break;
+                case "--max-frame":
+                    maxFrame = Double.parseDouble(value);
+                    break;
+                case "--max-nodes":
+                    maxNodes = Integer.parseInt(value);
+                    break;
+                case "--max-heap-growth":
+                    maxHeapGrowth = Double.parseDouble(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (level.equals("all")) {
+            for (Level each : Level.values()) {
+                if (!each.isMarathon()) {
+                    levels.add(each);
+                }
+            }
+        } else {
+            levels.add(Level.values()[Integer.parseInt(level) - 1]);
+        }
+    }
+
+    /**
+     * Plays every level and prints one line of results per level.
+     *
+     * @return true if every level stayed within its budgets
+     */
+    public boolean run() throws Exception {
+        onFx(() -> {
+            gamePane = new GamePane(85);
+            gamePane.setFastPlay(true); // Turns resolve at once, so one click per frame is possible
+            spectator = gamePane.getSpectatorFeed().subscribe();
+            stage = new Stage();
+            stage.setScene(new Scene(gamePane, 700, 700));
+            stage.show();
+            return null;
+        });
+
+        System.out.println("level,games,clicks,frame_p50_ms,frame_p99_ms,frame_max_ms,nodes,heap_growth_mb,result");
+        boolean passed = true;
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (Level level : levels) {
+            LatencyHistogram frames = new LatencyHistogram();
+            int nodes = 0;
+            long clicks = 0;
+            boolean spectatorAgreed = true;
+            long heapBefore = usedHeap(memory);
+
+            for (int game = 0; game < games; game++) {
+                Board board = startGame(level);
+                nodes = Math.max(nodes, onFx(() -> countNodes(stage.getScene().getRoot())));
+                int[] script = pairsInOrder(board);
+                playScript(script, frames);
+                clicks += script.length;
+                onFx(() -> {
+                    closeDialogs(); // The completion alert
+                    return null;
+                });
+                Thread.sleep(50); // Let the last changes be published
+                spectatorAgreed &= onFx(() -> {
+                    spectator.poll(spectatorBoard);
+                    return spectatorBoard.matches(gamePane.getEngine());
+                });
+            }
+            Thread.sleep(300); // Let the last flip animations finish
+            double heapGrowth = (usedHeap(memory) - heapBefore) / (1024.0 * 1024.0);
+
+            double p50 = frames.percentile(50) / 1e6;
+            double p99 = frames.percentile(99) / 1e6;
+            double max = frames.getMax() / 1e6;
+            List<String> over = new ArrayList<>();
+            if (p99 > maxFrameP99) {
+                over.add("frame p99");
+            }
+            if (max > maxFrame) {
+                over.add("frame max");
+            }
+            if (nodes > maxNodes) {
+                over.add("nodes");
+            }
+            if (heapGrowth > maxHeapGrowth) {
+                over.add("heap growth");
+            }
+            if (!spectatorAgreed) {
+                over.add("spectator");
+            }
+            passed &= over.isEmpty();
+            System.out.printf("%s,%d,%d,%.2f,%.2f,%.2f,%d,%.2f,%s%n", level, games, clicks, p50, p99, max, nodes,
+                    heapGrowth, over.isEmpty() ? "ok" : "OVER BUDGET: " + String.join(" ", over));
+        }
+        onFx(() -> {
+            gamePane.shutdown();
+            stage.close();
+            return null;
+        });
+        System.out.println(passed ? "All levels within budget" : "Error: Budgets exceeded");
+        return passed;
+    }
+
+    // Starts a game on a level through the level selector and waits until its board is showing
+    private Board startGame(Level level) throws Exception {
+        Board previous = onFx(() -> gamePane.getEngine().getBoard());
+        onFx(() -> {
+            if (gamePane.getEngine().getBoard() != null
+                    && Level.forSize(gamePane.getEngine().getBoard().getRows(),
+                    gamePane.getEngine().getBoard().getCols()) == level) {
+                gamePane.newGame(); // Already on this level, so selecting it would not start a game
+            } else {
+                gamePane.selectLevel(level);
+            }
+            return null;
+        });
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            Board board = onFx(() -> gamePane.getEngine().getBoard());
+            if (board != null && board != previous) {
+                return board;
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("Level " + level + " did not start");
+    }
+
+    // Clicks through a script from an AnimationTimer, recording the time between frames
+    private void playScript(int[] script, LatencyHistogram frames) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AnimationTimer timer = new AnimationTimer() {
+            private long lastFrame;
+            private int next;
+
+            @Override
+            public void handle(long now) {
+                if (lastFrame != 0) {
+                    frames.record(now - lastFrame);
+                }
+                lastFrame = now;
+                for (int i = 0; i < clicksPerFrame && next < script.length; i++) {
+                    press(script[next++]);
+                }
+                spectator.poll(spectatorBoard); // Follow the game as a viewer would, batch by batch
+                if (next == script.length) {
+                    stop();
+                    done.countDown();
+                }
+            }
+        };
+        Platform.runLater(timer::start);
+        done.await();
+    }
+
+    // Fires a mouse press at the centre of a card, as the user would
+    private void press(int index) {
+        Board board = gamePane.getEngine().getBoard();
+        int row = board.rowOf(index);
+        int col = board.colOf(index);
+        Node node = gamePane.getBoardNode();
+        Point2D scenePoint;
+        if (node instanceof CanvasBoardView) {
+            double cell = ((CanvasBoardView) node).getCellSize();
+            scenePoint = node.localToScene((col + 0.5) * cell, (row + 0.5) * cell);
+        } else {
+            Node card = ((CardGridPane) node).getCard(row, col);
+            Bounds bounds = card.getLayoutBounds();
+            scenePoint = card.localToScene(bounds.getCenterX(), bounds.getCenterY());
+            node = card;
+        }
+        Point2D screenPoint = node.getScene().getRoot().localToScreen(scenePoint);
+        double screenX = screenPoint == null ? scenePoint.getX() : screenPoint.getX();
+        double screenY = screenPoint == null ? scenePoint.getY() : screenPoint.getY();
+        MouseEvent event = new MouseEvent(MouseEvent.MOUSE_PRESSED, scenePoint.getX(), scenePoint.getY(),
+                screenX, screenY, MouseButton.PRIMARY, 1, false, false, false, false, true, false, false,
+                false, false, true, null);
+        MouseEvent.fireEvent(node, event);
+    }
+
+    // Card indexes that clear the board with no mismatches: both cards of each pair, pair by pair
+    private static int[] pairsInOrder(Board board) {
+        int[] script = new int[board.size()];
+        boolean[] used = new boolean[board.size()];
+        int count = 0;
+        for (int first = 0; first < board.size(); first++) {
+            if (used[first]) {
+                continue;
+            }
+            for (int second = first + 1; second < board.size(); second++) {
+                if (!used[second] && board.getFace(second) == board.getFace(first)) {
+                    used[first] = true;
+                    used[second] = true;
+                    script[count++] = first;
+                    script[count++] = second;
+                    break;
+                }
+            }
+        }
+        return script;
+    }
+
+    // Closes every window except the game's own
+    private void closeDialogs() {
+        for (Window window : new ArrayList<>(Window.getWindows())) {
+            if (window != stage && window instanceof Stage) {
+                ((Stage) window).close();
+            }
+        }
+    }
+
+    // Number of nodes in a scene graph
+    private static int countNodes(Node node) {
+        int count = 1;
+        if (node instanceof Parent) {
+            for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+                count += countNodes(child);
+            }
+        }
+        return count;
+    }
+
+    // Heap in use after a full collection
+    private static long usedHeap(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    // Runs a task on the FX thread and waits for its result
+    private static <T> T onFx(Supplier<T> task) throws Exception {
+        FutureTask<T> future = new FutureTask<>(task::get);
+        Platform.runLater(future);
+        return future.get();
+    }
+}
@@ -0,0 +1,69 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Replay plays a recorded game back headless as fast as possible. It rebuilds the board from the log's
+ * seed and applies every flip to a GameEngine, resolving each turn as soon as its second card is up.
+ *
+ * Usage: java Replay game.cml [--repeat N]
+ */
+public class Replay {
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java Replay game.cml [--repeat N]");
+            return;
+        }
+        int repeat = args.length >= 3 && args[1].equals("--repeat") ? Integer.parseInt(args[2]) : 1;
+
+        MoveLog.Recording recording;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(Paths.get(args[0])))) {
+            recording = MoveLog.read(in);
+        }
+
+        Board board = buildBoard(recording);
+        GameEngine engine = new GameEngine();
+        long start = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            run(engine, board, recording);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%dx%d board, seed %d: %d flips, %d turns, %s%n", recording.getRows(),
+                recording.getCols(), recording.getSeed(), recording.getFlipCount(), engine.getTurnCount(),
+                engine.isComplete() ? "complete" : "not complete");
+        System.out.printf("%d replays in %.3f s (%.0f flips/sec)%n",
+                repeat, seconds, (double) repeat * recording.getFlipCount() / seconds);
+    }
+
+    /**
+     * Rebuilds the board a recording was played on.
+     *
+     * @param recording The recorded game
+     * @return A Board with the recorded layout
+     */
+    public static Board buildBoard(MoveLog.Recording recording) {
+        int[] faces = LevelPreparer.dealFaces(recording.getRows() * recording.getCols(),
+                recording.getFaceCount(), new Random(recording.getSeed()));
+        return new Board(recording.getRows(), recording.getCols(), faces);
+    }
+
+    /**
+     * Plays every flip of a recording on an engine without any delays.
+     *
+     * @param engine    The engine to play on
+     * @param board     The board rebuilt from the recording
+     * @param recording The recorded game
+     */
+    public static void run(GameEngine engine, Board board, MoveLog.Recording recording) {
+        engine.newGame(board);
+        for (int i = 0; i < recording.getFlipCount(); i++) {
+            if (engine.flip(recording.getFlip(i)) == GameEngine.SECOND) {
+                engine.resolveTurn();
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * ScoreStore keeps every finished game in an append-only, memory-mapped file and answers leaderboard
+ * queries from a small in-memory index. Each game is one 32-byte record:
+ *
+ *   CRC32C of the rest (4) | level key (2) | rows (1) | cols (1) | turns (4) | duration in ms (4) | seed (8) |
+ *   finished at (8)
+ *
+ * Records are written on a background thread, so saving a game never blocks the FX thread. A record only
+ * counts once its checksum matches. When the file is opened, records are read up to the first bad one,
+ * so a record torn by a crash is dropped and later games overwrite it. The index is rebuilt from the log
+ * on opening. It keeps the best game of each level and a count of games per turn count, so best and
+ * percentile queries take the same time however many games are stored. A level is told apart by its board
+ * size and a 16-bit key made from its label, so catalog levels of the same size keep separate leaderboards.
+ */
+public class ScoreStore implements AutoCloseable {
+    public static final String DEFAULT_FILE = "scores.dat"; // Used unless -Dscores.file is set
+
+    private static final int MAGIC = 0x43534331; // "CSC1"
+    private static final int HEADER_SIZE = 32; // Magic and room for later use, keeps records aligned
+    private static final int RECORD_SIZE = 32;
+    private static final int GROW_RECORDS = 32 * 1024; // Records added each time the file grows (1 MB)
+
+    private final FileChannel channel; // The log file
+    private MappedByteBuffer map; // The whole file mapped into memory
+    private int end; // Offset where the next record goes
+    private final CRC32C crc = new CRC32C(); // Only used on the writer thread
+    private final ExecutorService writer; // Thread that writes records and loads the log
+    private final Map<Integer, LevelStats> index = new HashMap<>(); // Statistics per level
+
+    /**
+     * Score is one finished game.
+     */
+    public static final class Score {
+        private final int levelKey; // Key of the level's label, from levelKey
+        private final int rows;
+        private final int cols;
+        private final int turns;
+        private final int durationMillis;
+        private final long seed;
+        private final long finishedAt; // Milliseconds since the epoch
+
+        public Score(int levelKey, int rows, int cols, int turns, int durationMillis, long seed, long finishedAt) {
+            this.levelKey = levelKey;
+            this.rows = rows;
+            this.cols = cols;
+            this.turns = turns;
+            this.durationMillis = durationMillis;
+            this.seed = seed;
+            this.finishedAt = finishedAt;
+        }
+
+        // True if this game beats another: fewer turns, then less time
+        boolean beats(Score other) {
+            return other == null || turns < other.turns
+                    || (turns == other.turns && durationMillis < other.durationMillis);
+        }
+
+        public int getLevelKey() {
+            return levelKey;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getCols() {
+            return cols;
+        }
+
+        public int getTurns() {
+            return turns;
+        }
+
+        public int getDurationMillis() {
+            return durationMillis;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public long getFinishedAt() {
+            return finishedAt;
+        }
+    }
+
+    /**
+     * LevelStats is the index entry of one level.
+     */
+    private static final class LevelStats {
+        private long count; // Games played
+        private Score best; // Best game so far
+        private long[] turnCounts = new long[64]; // Games per number of turns
+
+        void add(Score score) {
+            count++;
+            if (score.beats(best)) {
+                best = score;
+            }
+            if (score.turns >= turnCounts.length) {
+                turnCounts = Arrays.copyOf(turnCounts, Math.max(score.turns + 1, turnCounts.length * 2));
+            }
+            turnCounts[score.turns]++;
+        }
+    }
+
+    // Constructor that opens or creates the log file and starts loading it in the background
+    private ScoreStore(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "score-store");
+            thread.setDaemon(true); // Do not keep the program alive
+            return thread;
+        });
+        long size = Math.max(channel.size(), HEADER_SIZE + (long) GROW_RECORDS * RECORD_SIZE);
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        int magic = map.getInt(0);
+        if (magic == 0) {
+            map.putInt(0, MAGIC); // New file
+        } else if (magic != MAGIC) {
+            channel.close();
+            throw new IOException(file + " is not a score file");
+        }
+        writer.execute(this::load);
+    }
+
+    /**
+     * Opens the score log at a path, creating it if needed.
+     *
+     * @param file The log file
+     * @return The open ScoreStore
+     */
+    public static ScoreStore open(Path file) throws IOException {
+        return new ScoreStore(file);
+    }
+
+    // Reads every valid record into the index and finds where the next record goes
+    private void load() {
+        int offset = HEADER_SIZE;
+        synchronized (this) {
+            while (offset + RECORD_SIZE <= map.capacity()) {
+                Score score = read(offset);
+                if (score == null) {
+                    break; // End of the log, or a record torn by a crash
+                }
+                statsFor(score.levelKey, score.rows, score.cols).add(score);
+                offset += RECORD_SIZE;
+            }
+        }
+        end = offset;
+    }
+
+    // Reads the record at an offset, or returns null if it is not a complete record
+    private Score read(int offset) {
+        if (map.getInt(offset) != checksum(offset)) {
+            return null;
+        }
+        int rows = map.get(offset + 6) & 0xFF;
+        int cols = map.get(offset + 7) & 0xFF;
+        if (rows == 0 || cols == 0) {
+            return null;
+        }
+        return new Score(map.getShort(offset + 4) & 0xFFFF, rows, cols, map.getInt(offset + 8),
+                map.getInt(offset + 12), map.getLong(offset + 16), map.getLong(offset + 24));
+    }
+
+    private int checksum(int offset) {
+        crc.reset();
+        crc.update(map.slice(offset + 4, RECORD_SIZE - 4));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Records a finished game. Returns at once; the record is written on the store's own thread.
+     *
+     * @param score The finished game
+     */
+    public void record(Score score) {
+        writer.execute(() -> {
+            try {
+                append(score);
+            } catch (IOException e) {
+                System.out.println("Error: Could not save score: " + e.getMessage());
+            }
+        });
+    }
+
+    // Writes one record at the end of the log and adds it to the index
+    private void append(Score score) throws IOException {
+        if (end + RECORD_SIZE > map.capacity()) {
+            map.force();
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    map.capacity() + (long) GROW_RECORDS * RECORD_SIZE);
+        }
+        int offset = end;
+        map.putShort(offset + 4, (short) score.levelKey);
+        map.put(offset + 6, (byte) score.rows);
+        map.put(offset + 7, (byte) score.cols);
+        map.putInt(offset + 8, score.turns);
+        map.putInt(offset + 12, score.durationMillis);
+        map.putLong(offset + 16, score.seed);
+        map.putLong(offset + 24, score.finishedAt);
+        map.putInt(offset, checksum(offset)); // Written last, so the record only counts once it is complete
+        end = offset + RECORD_SIZE;
+        synchronized (this) {
+            statsFor(score.levelKey, score.rows, score.cols).add(score);
+        }
+    }
+
+    /**
+     * Returns a future that completes once every record asked for so far has been written.
+     *
+     * @return The Future to wait on
+     */
+    public Future<?> flush() {
+        return writer.submit(() -> {
+        });
+    }
+
+    /**
+     * Writes the waiting records, forces the log to disk and closes it.
+     */
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        map.force();
+        channel.close();
+    }
+
+    /**
+     * Returns the key a level's games are stored under: its label folded into 16 bits.
+     *
+     * @param label The label of the level
+     * @return The level key, from 0 to 65535
+     */
+    public static int levelKey(String label) {
+        int hash = label.hashCode();
+        return (hash ^ (hash >>> 16)) & 0xFFFF;
+    }
+
+    // Index entry of a level, created on first use
+    private LevelStats statsFor(int levelKey, int rows, int cols) {
+        return index.computeIfAbsent(key(levelKey, rows, cols), k -> new LevelStats());
+    }
+
+    // Index key of a level: board sides are at most 255, so everything fits in one int
+    private static int key(int levelKey, int rows, int cols) {
+        return (levelKey << 16) | (rows << 8) | cols;
+    }
+
+    private static int key(Level level) {
+        return key(levelKey(level.getLabel()), level.getRows(), level.getCols());
+    }
+
+    /**
+     * Returns the best game on a level: fewest turns, then shortest time.
+     *
+     * @param level The level
+     * @return The best Score, or null if no game on that level was recorded
+     */
+    public synchronized Score getBest(Level level) {
+        LevelStats stats = index.get(key(level));
+        return stats == null ? null : stats.best;
+    }
+
+    /**
+     * Returns the turn count at or below which a percentage of the games on a level finished.
+     *
+     * @param level   The level
+     * @param percent The percentile, for example 50 for the median
+     * @return The number of turns, or 0 if no game on that level was recorded
+     */
+    public synchronized int percentile(Level level, double percent) {
+        LevelStats stats = index.get(key(level));
+        if (stats == null) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(stats.count * percent / 100.0));
+        long seen = 0;
+        for (int turns = 0; turns < stats.turnCounts.length; turns++) {
+            seen += stats.turnCounts[turns];
+            if (seen >= target) {
+                return turns;
+            }
+        }
+        return stats.turnCounts.length - 1;
+    }
+
+    /**
+     * Returns the percentage of recorded games on a level that took more turns than a result.
+     *
+     * @param level The level
+     * @param turns The result to rank
+     * @return The percentage of games beaten, from 0 to 100
+     */
+    public synchronized double percentBeaten(Level level, int turns) {
+        LevelStats stats = index.get(key(level));
+        if (stats == null || stats.count == 0) {
+            return 0;
+        }
+        long worse = 0;
+        for (int t = turns + 1; t < stats.turnCounts.length; t++) {
+            worse += stats.turnCounts[t];
+        }
+        return 100.0 * worse / stats.count;
+    }
+
+    // Number of games recorded on a level
+    public synchronized long getCount(Level level) {
+        LevelStats stats = index.get(key(level));
+        return stats == null ? 0 : stats.count;
+    }
+}
@@ -0,0 +1,274 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Simulator plays large numbers of seeded games headless with a Bot, spread over all cores, and reports the
+ * distribution of turn counts for each level. Every finished chunk of games is written to the CSV file
+ * straight away, so memory use does not grow with the number of games.
+ *
+ * Usage: java Simulator [--games N] [--level all|N] [--strategy random|perfect|limited:N]
+ *                       [--seed S] [--threads T] [--out games.csv] [--dist distribution.csv]
+ */
+public class Simulator {
+    private static final int CHUNK = 4096; // Games played by one task before its results are written
+
+    private long games = 100_000; // Games to play per level
+    private List<Level> levels = standardLevels(); // Levels to simulate
+    private String strategy = "perfect"; // Bot strategy
+    private long seed = 1; // Seed every game seed is derived from
+    private int threads = Runtime.getRuntime().availableProcessors(); // Worker threads
+    private String out; // Per-game CSV file, or null for none
+    private String dist; // Distribution CSV file, or null for none
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        Simulator simulator = new Simulator();
+        simulator.parseArgs(args);
+        simulator.run();
+    }
+
+    // Reads the command line options
+    private void parseArgs(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--games":
+                    games = Long.parseLong(value);
+                    break;
+                case "--level":
+                    levels = value.equals("all")
+                            ? standardLevels()
+                            : List.of(Level.values()[Integer.parseInt(value) - 1]);
+                    break;
+                case "--strategy":
+                    Bot.forStrategy(value); // Fail early on an unknown strategy
+                    strategy = value;
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--out":
+                    out = value;
+                    break;
+                case "--dist":
+                    dist = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    /**
+     * Simulates every selected level and prints a summary line per level.
+     */
+    public void run() throws IOException, InterruptedException, ExecutionException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (Writer gameWriter = open(out, "level,strategy,game,seed,turns");
+             Writer distWriter = open(dist, "level,strategy,turns,games")) {
+            System.out.println("level,strategy,games,min,mean,p50,p90,p99,max,games_per_sec");
+            for (Level level : levels) {
+                long start = System.nanoTime();
+                TurnHistogram histogram = new TurnHistogram();
+                int chunks = (int) ((games + CHUNK - 1) / CHUNK);
+                pool.submit(() -> IntStream.range(0, chunks).parallel()
+                        .forEach(chunk -> runChunk(level, chunk, histogram, gameWriter))).get();
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                System.out.printf("%s,%s,%d,%d,%.2f,%d,%d,%d,%d,%.0f%n", level, strategy, histogram.getCount(),
+                        histogram.getMin(), histogram.getMean(), histogram.percentile(50),
+                        histogram.percentile(90), histogram.percentile(99), histogram.getMax(),
+                        histogram.getCount() / seconds);
+                if (distWriter != null) {
+                    histogram.write(distWriter, level + "," + strategy);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Plays one chunk of games on the calling thread, reusing the engine, bot and random for every game
+    private void runChunk(Level level, int chunk, TurnHistogram histogram, Writer gameWriter) {
+        GameEngine engine = new GameEngine();
+        Bot bot = Bot.forStrategy(strategy);
+        Random random = new Random();
+        TurnHistogram local = new TurnHistogram();
+        StringBuilder lines = gameWriter == null ? null : new StringBuilder();
+
+        long first = (long) chunk * CHUNK;
+        long last = Math.min(games, first + CHUNK);
+        for (long game = first; game < last; game++) {
+            long gameSeed = gameSeed(level, game);
+            int turns = play(engine, bot, random, level.getRows(), level.getCols(), gameSeed);
+            local.add(turns);
+            if (lines != null) {
+                lines.append(level).append(',').append(strategy).append(',').append(game).append(',')
+                        .append(gameSeed).append(',').append(turns).append('\n');
+            }
+        }
+
+        histogram.merge(local);
+        if (lines != null) {
+            synchronized (gameWriter) {
+                try {
+                    gameWriter.append(lines);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays one game to the end with a bot.
+     *
+     * @param engine The engine to play on
+     * @param bot    The player
+     * @param random Reseeded for this game, used for the layout and the bot's random picks
+     * @param rows   The number of rows on the board
+     * @param cols   The number of columns on the board
+     * @param seed   The seed of this game
+     * @return The number of turns the bot needed
+     */
+    public static int play(GameEngine engine, Bot bot, Random random, int rows, int cols, long seed) {
+        random.setSeed(seed);
+        Board board = new Board(rows, cols, LevelPreparer.dealFaces(rows * cols, random));
+        engine.newGame(board);
+        bot.newGame(board, random);
+
+        while (!engine.isComplete()) {
+            int first = bot.pickFirst();
+            engine.flip(first);
+            bot.saw(first);
+            int second = bot.pickSecond(first);
+            engine.flip(second);
+            bot.saw(second);
+            engine.resolveTurn();
+            bot.turnEnded(first, second);
+        }
+        return engine.getTurnCount();
+    }
+
+    // Every level except the marathon boards, which take far longer per game
+    private static List<Level> standardLevels() {
+        List<Level> standard = new ArrayList<>();
+        for (Level level : Level.values()) {
+            if (!level.isMarathon()) {
+                standard.add(level);
+            }
+        }
+        return standard;
+    }
+
+    // Seed of one game, derived from the run seed so any single game can be replayed
+    private long gameSeed(Level level, long game) {
+        long z = seed + level.ordinal() * 0x9E3779B97F4A7C15L + game * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Opens a CSV file and writes its header, or returns null when no file was asked for
+    private static Writer open(String file, String header) throws IOException {
+        if (file == null) {
+            return null;
+        }
+        Writer writer = new BufferedWriter(Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8), 1 << 16);
+        writer.write(header + "\n");
+        return writer;
+    }
+
+    /**
+     * TurnHistogram counts how many games finished in each number of turns.
+     */
+    private static class TurnHistogram {
+        private long[] counts = new long[64]; // Number of games per turn count
+        private long count; // Number of games recorded
+        private long total; // Sum of all turn counts
+
+        // Records one game
+        void add(int turns) {
+            if (turns >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(turns + 1, counts.length * 2));
+            }
+            counts[turns]++;
+            count++;
+            total += turns;
+        }
+
+        // Adds the games of another histogram to this one
+        synchronized void merge(TurnHistogram other) {
+            if (other.counts.length > counts.length) {
+                counts = Arrays.copyOf(counts, other.counts.length);
+            }
+            for (int turns = 0; turns < other.counts.length; turns++) {
+                counts[turns] += other.counts[turns];
+            }
+            count += other.count;
+            total += other.total;
+        }
+
+        // Smallest turn count at or below which the given percent of games finished
+        synchronized int percentile(double percent) {
+            long target = (long) Math.ceil(count * percent / 100.0);
+            long seen = 0;
+            for (int turns = 0; turns < counts.length; turns++) {
+                seen += counts[turns];
+                if (seen >= Math.max(1, target)) {
+                    return turns;
+                }
+            }
+            return counts.length - 1;
+        }
+
+        synchronized int getMin() {
+            for (int turns = 0; turns < counts.length; turns++) {
+                if (counts[turns] > 0) {
+                    return turns;
+                }
+            }
+            return 0;
+        }
+
+        synchronized int getMax() {
+            for (int turns = counts.length - 1; turns > 0; turns--) {
+                if (counts[turns] > 0) {
+                    return turns;
+                }
+            }
+            return 0;
+        }
+
+        synchronized double getMean() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        synchronized long getCount() {
+            return count;
+        }
+
+        // Writes one "prefix,turns,games" line for every turn count that occurred
+        synchronized void write(Writer writer, String prefix) throws IOException {
+            for (int turns = 0; turns < counts.length; turns++) {
+                if (counts[turns] > 0) {
+                    writer.write(prefix + "," + turns + "," + counts[turns] + "\n");
+                }
+            }
+        }
+    }
+}
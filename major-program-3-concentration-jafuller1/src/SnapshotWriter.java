@@ -0,0 +1,113 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * SnapshotWriter saves the current game's snapshot on a background thread. Each save is written to a
+ * temporary file that is synced and then moved over the snapshot, so the file always holds a whole
+ * snapshot, the old one or the new one. Saving only hands the bytes over, and when saves come faster
+ * than the disk takes them only the newest one is written.
+ */
+public class SnapshotWriter implements AutoCloseable {
+    public static final String DEFAULT_FILE = "snapshot.dat"; // Used unless -Dsnapshot.file is set
+
+    private final Path file; // The snapshot file
+    private final Path temp; // Written first, then moved over the snapshot file
+    private final AtomicReference<byte[]> latest = new AtomicReference<>(); // Newest snapshot not written yet
+    private final ExecutorService writer; // Thread that writes the snapshots
+
+    // Constructor that accepts the snapshot file and starts the writer thread
+    public SnapshotWriter(Path file) {
+        this.file = file;
+        this.temp = file.resolveSibling(file.getFileName() + ".tmp");
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "snapshot-writer");
+            thread.setDaemon(true); // Do not keep the program alive
+            return thread;
+        });
+    }
+
+    /**
+     * Reads the saved snapshot.
+     *
+     * @return The snapshot bytes, or null if there is no snapshot
+     * @throws IOException If the file cannot be read
+     */
+    public byte[] read() throws IOException {
+        try {
+            return Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Saves a snapshot in the background, replacing one that is still waiting to be written.
+     *
+     * @param data The encoded snapshot
+     */
+    public void save(byte[] data) {
+        if (latest.getAndSet(data) == null) {
+            writer.execute(this::writeLatest); // No write is queued yet
+        }
+    }
+
+    /**
+     * Removes the snapshot once every earlier save has been written, for a game that has ended.
+     */
+    public void delete() {
+        writer.execute(() -> {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.out.println("Error: Could not delete the snapshot: " + e.getMessage());
+            }
+        });
+    }
+
+    // Writes the newest snapshot to the temporary file and moves it into place
+    private void writeLatest() {
+        byte[] data = latest.getAndSet(null);
+        if (data == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false); // On disk before it replaces the old snapshot
+        } catch (IOException e) {
+            System.out.println("Error: Could not save the game: " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.out.println("Error: Could not save the game: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes any waiting snapshot and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
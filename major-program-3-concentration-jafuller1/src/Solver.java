@@ -0,0 +1,286 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Solver works out optimal play with perfect memory. Which cards have been seen is all that matters, so
+ * a position is described by two numbers: u, the unmatched cards never seen, and k, the cards seen once
+ * whose partner has not been seen. Known pairs are always cleared straight away, one turn each.
+ *
+ * On each turn the player flips an unseen card. If it matches a known card, that card is flipped to make
+ * the match. Otherwise there are two choices for the second card: another unseen card, hoping for a match
+ * but maybe revealing a new face, or a card already known, which learns nothing but gives nothing away.
+ * The table holds the expected number of turns left for every (u, k) and which choice is better. Layers
+ * of equal u only depend on the two layers below, so wide layers are filled in parallel.
+ *
+ * Boards whose faces repeat (more pairs than the deck has faces) are solved as if every pair were
+ * distinct, which is exact for every standard level.
+ */
+public class Solver {
+    public static final int MAX_PAIRS = 2048; // Largest board solved, the table grows with pairs squared
+    private static final int PARALLEL_WIDTH = 256; // Layers at least this wide are filled in parallel
+
+    private static final ConcurrentHashMap<Integer, Solver> SOLVERS = new ConcurrentHashMap<>(); // By pairs
+
+    private final int pairs; // Pairs on the board
+    private final double[] expected; // Expected turns left, at index(u, k)
+    private final boolean[] safe; // Whether a known card is the better second flip, at index(u, k)
+
+    // Constructor that fills the table for a number of pairs
+    private Solver(int pairs) {
+        this.pairs = pairs;
+        int maxU = 2 * pairs;
+        expected = new double[index(maxU, maxU) + 1];
+        safe = new boolean[expected.length];
+        for (int u = 1; u <= maxU; u++) {
+            int layer = u;
+            IntStream ks = IntStream.rangeClosed(0, u).filter(k -> (layer - k) % 2 == 0);
+            if (u >= PARALLEL_WIDTH) {
+                ks = ks.parallel();
+            }
+            ks.forEach(k -> solve(layer, k));
+        }
+    }
+
+    /**
+     * Returns the solver for a number of pairs, building its table on first use.
+     *
+     * @param pairs The number of pairs on the board
+     * @return The Solver, or null if the board is too big to solve exactly
+     */
+    public static Solver forPairs(int pairs) {
+        if (pairs > MAX_PAIRS) {
+            return null;
+        }
+        return SOLVERS.computeIfAbsent(pairs, Solver::new);
+    }
+
+    // Position of (u, k) in the table: one layer per u, holding k from 0 to u
+    private static int index(int u, int k) {
+        return u * (u + 1) / 2 + k;
+    }
+
+    // Fills in one position from the layers below it
+    private void solve(int u, int k) {
+        double total = 0;
+        if (k > 0) {
+            // The unseen card matches a known card: flip that card and score the pair
+            total += (double) k / u * (1 + expected[index(u - 1, k - 1)]);
+        }
+        if (u > k) {
+            // The unseen card shows a new face, which now has u - 1 unseen cards and k + 1 known to choose from
+            int left = u - 1;
+            double gamble = (1 + expected[index(u - 2, k)]) / left // Its partner
+                    + (double) k / left * (2 + expected[index(u - 2, k)]); // A known card's partner, scored next turn
+            if (left - 1 - k > 0) {
+                gamble += (double) (left - 1 - k) / left * (1 + expected[index(u - 2, k + 2)]); // Another new face
+            }
+            double best = gamble;
+            if (k > 0) {
+                double playSafe = 1 + expected[index(u - 1, k + 1)];
+                if (playSafe < gamble) {
+                    best = playSafe;
+                    safe[index(u, k)] = true;
+                }
+            }
+            total += (double) (u - k) / u * best;
+        }
+        expected[index(u, k)] = total;
+    }
+
+    /**
+     * Returns the expected number of turns left with optimal play.
+     *
+     * @param unseen The number of unmatched cards never seen
+     * @param known  The number of cards seen once whose partner has not been seen
+     * @return The expected number of turns
+     */
+    public double expectedTurns(int unseen, int known) {
+        if (unseen < known || (unseen - known) % 2 != 0 || unseen > 2 * pairs) {
+            return Double.NaN;
+        }
+        return expected[index(unseen, known)];
+    }
+
+    /**
+     * Tells whether, after a first card showing a new face, flipping a known card beats flipping an unseen
+     * one. The counts are taken before the first card was flipped.
+     *
+     * @param unseen The number of unmatched cards never seen
+     * @param known  The number of cards seen once whose partner has not been seen
+     * @return true if the second card should be a known card
+     */
+    public boolean shouldPlaySafe(int unseen, int known) {
+        return unseen <= 2 * pairs && unseen >= known && (unseen - known) % 2 == 0 && safe[index(unseen, known)];
+    }
+
+    public int getPairs() {
+        return pairs;
+    }
+
+    /**
+     * Prints the expected turns of optimal play for every level, to calibrate the level table against.
+     *
+     * @param args Not used
+     */
+    public static void main(String[] args) {
+        System.out.println("level,pairs,optimal_turns");
+        for (Level level : Level.values()) {
+            int levelPairs = level.getRows() * level.getCols() / 2;
+            Solver solver = forPairs(levelPairs);
+            String turns = solver == null ? "n/a" : String.format("%.2f", solver.expectedTurns(2 * levelPairs, 0));
+            System.out.printf("%s,%d,%s%n", level, levelPairs, turns);
+        }
+    }
+
+    /**
+     * Advisor follows one game, remembering every card that has been shown, and suggests the next card to
+     * flip according to the Solver. It works on any board; without a solver it never plays safe.
+     */
+    public static final class Advisor {
+        private Board board; // Board being played
+        private Solver solver; // Table for the board, or null if it is too big
+        private long[] seen = new long[1]; // Cards that have been face up at some point
+        private int[] firstSeen = new int[0]; // For each face, an unmatched seen card, or -1
+        private int[] secondSeen = new int[0]; // For each face, a second unmatched seen card, or -1
+        private int lastNew = -1; // Most recent card that was shown for the first time
+
+        /**
+         * Starts following a new game.
+         *
+         * @param board The board about to be played
+         */
+        public void newGame(Board board) {
+            this.board = board;
+            this.solver = forPairs(board.size() / 2);
+            int words = (board.size() + 63) / 64;
+            if (seen.length < words) {
+                seen = new long[words];
+            }
+            Arrays.fill(seen, 0);
+            lastNew = -1;
+            int faces = 0;
+            for (int i = 0; i < board.size(); i++) {
+                faces = Math.max(faces, board.getFace(i) + 1);
+            }
+            if (firstSeen.length < faces) {
+                firstSeen = new int[faces];
+                secondSeen = new int[faces];
+            }
+        }
+
+        /**
+         * Remembers that a card has been shown. Call it for every card flipped, whoever flipped it.
+         *
+         * @param index The board index of the card
+         */
+        public void saw(int index) {
+            if (!isSeen(index)) {
+                seen[index >>> 6] |= 1L << index;
+                lastNew = index;
+            }
+        }
+
+        private boolean isSeen(int index) {
+            return (seen[index >>> 6] & (1L << index)) != 0;
+        }
+
+        /**
+         * Suggests the next card to flip in a game.
+         *
+         * @param engine The engine playing the board this advisor follows
+         * @return The index of the card to flip, or -1 if no card should be flipped now
+         */
+        public int suggest(GameEngine engine) {
+            if (engine.getBoard() != board || engine.isComplete() || engine.isTurnPending()) {
+                return -1;
+            }
+            int first = engine.getFirstIndex();
+
+            // Group the unmatched seen cards by face and count the unseen ones
+            Arrays.fill(firstSeen, -1);
+            Arrays.fill(secondSeen, -1);
+            int unseen = 0;
+            int anyUnseen = -1;
+            int pairCard = -1; // A card of a face whose two cards are both known
+            for (int i = 0; i < board.size(); i++) {
+                if (board.isMatched(i)) {
+                    continue;
+                }
+                if (!isSeen(i)) {
+                    unseen++;
+                    if (anyUnseen < 0 && i != first) {
+                        anyUnseen = i;
+                    }
+                    continue;
+                }
+                int face = board.getFace(i);
+                if (firstSeen[face] < 0) {
+                    firstSeen[face] = i;
+                } else if (secondSeen[face] < 0) {
+                    secondSeen[face] = i;
+                    if (pairCard < 0 && i != first && firstSeen[face] != first) {
+                        pairCard = firstSeen[face];
+                    }
+                }
+            }
+
+            if (first < 0) {
+                return pairCard >= 0 ? pairCard : anyUnseen; // Clear a known pair, or explore
+            }
+
+            // Second card: the first card's partner if it is known
+            int face = board.getFace(first);
+            int partner = firstSeen[face] == first ? secondSeen[face] : firstSeen[face];
+            if (partner >= 0) {
+                return partner;
+            }
+            // Otherwise choose between a known card and an unseen card, counting as before the first flip
+            int known = 0;
+            int someKnown = -1;
+            for (int f = 0; f < firstSeen.length; f++) {
+                if (firstSeen[f] >= 0 && secondSeen[f] < 0 && f != face) {
+                    known++;
+                    someKnown = firstSeen[f];
+                }
+            }
+            // Playing safe only pays off when the first card has just shown a new face
+            if (solver != null && lastNew == first && someKnown >= 0
+                    && solver.shouldPlaySafe(unseen + 1, known)) {
+                return someKnown;
+            }
+            return anyUnseen >= 0 ? anyUnseen : someKnown;
+        }
+
+        /**
+         * Returns the expected number of turns left with optimal play from the current position.
+         *
+         * @return The expected turns, or NaN if the board is too big to solve
+         */
+        public double expectedTurnsLeft() {
+            if (solver == null) {
+                return Double.NaN;
+            }
+            int unseen = 0;
+            int known = 0;
+            int knownPairs = 0;
+            Arrays.fill(firstSeen, -1);
+            Arrays.fill(secondSeen, -1);
+            for (int i = 0; i < board.size(); i++) {
+                if (board.isMatched(i)) {
+                    continue;
+                }
+                if (!isSeen(i)) {
+                    unseen++;
+                } else if (firstSeen[board.getFace(i)] < 0) {
+                    firstSeen[board.getFace(i)] = i;
+                    known++;
+                } else {
+                    known--; // Both cards of this face are known
+                    knownPairs++;
+                }
+            }
+            return knownPairs + solver.expectedTurns(unseen, known);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+import javax.sound.sampled.LineEvent;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * SoundEngine plays the game's sound effects. Each effect is decoded into memory once and kept open in a
+ * small pool of Clips that are reused for every play. Clips are started from a dedicated sound thread so
+ * playing a sound never holds up the FX thread.
+ */
+public class SoundEngine {
+    public static final int DEFAULT_POOL_SIZE = 3; // Clips per effect, enough for quick back-to-back matches
+
+    private final Map<String, Clip[]> pools; // Open clips for each effect
+    private final Map<String, Integer> nextClip; // Index of the clip each effect uses next
+    private final ExecutorService soundThread; // Thread that starts the clips
+
+    private volatile long triggerTime; // When the most recent play was requested
+    private volatile GameEvents.SoundStart startEvent; // JFR event of the most recent play
+    private volatile long lastLatency = -1; // Time from the most recent request until its clip started
+    private volatile long maxLatency; // Longest time from request until playback so far
+    private long totalLatency; // Sum of all latencies, for the average
+    private long plays; // Number of clips that have started
+
+    // Default constructor starts the sound thread
+    public SoundEngine() {
+        this.pools = new HashMap<>();
+        this.nextClip = new HashMap<>();
+        this.soundThread = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "sound-engine");
+            thread.setDaemon(true); // Do not keep the program alive
+            return thread;
+        });
+    }
+
+    /**
+     * Decodes a sound file into memory and opens a pool of clips for it. If the file cannot be read or
+     * no audio line is available, the effect is left out and playing it does nothing.
+     *
+     * @param name     The name used to play the effect
+     * @param file     The sound file to load
+     * @param poolSize The number of clips that can play this effect at the same time
+     * @return true if the effect was loaded
+     */
+    public synchronized boolean load(String name, File file, int poolSize) {
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(file)) {
+            // Decode the whole file once
+            AudioFormat format = in.getFormat();
+            byte[] data = in.readAllBytes();
+
+            Clip[] clips = new Clip[poolSize];
+            for (int i = 0; i < poolSize; i++) {
+                Clip clip = AudioSystem.getClip();
+                clip.open(format, data, 0, data.length); // Every clip shares the decoded bytes
+                clip.addLineListener(this::onLineEvent);
+                clips[i] = clip;
+            }
+            close(pools.put(name, clips)); // Release any clips of an effect loaded under the same name
+            nextClip.put(name, 0);
+            return true;
+        } catch (LineUnavailableException | UnsupportedAudioFileException | IOException
+                 | IllegalArgumentException e) {
+            System.out.println("Error: Could not load sound " + file + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Plays an effect on the sound thread. If every clip of the effect is busy, the one that started
+     * longest ago is restarted.
+     *
+     * @param name The name of the effect to play
+     */
+    public void play(String name) {
+        long requested = System.nanoTime();
+        GameEvents.SoundStart event = new GameEvents.SoundStart();
+        event.begin();
+        event.effect = name;
+        soundThread.execute(() -> {
+            Clip clip = takeClip(name);
+            if (clip == null) {
+                return; // Effect was not loaded
+            }
+            triggerTime = requested;
+            startEvent = event;
+            clip.stop();
+            clip.setFramePosition(0); // Rewind the reused clip
+            clip.start();
+        });
+    }
+
+    // Returns the next clip of an effect in round-robin order
+    private synchronized Clip takeClip(String name) {
+        Clip[] clips = pools.get(name);
+        if (clips == null) {
+            return null;
+        }
+        int index = nextClip.get(name);
+        nextClip.put(name, (index + 1) % clips.length);
+        return clips[index];
+    }
+
+    // Records the latency when a clip actually starts playing
+    private void onLineEvent(LineEvent event) {
+        if (event.getType() == LineEvent.Type.START) {
+            long latency = System.nanoTime() - triggerTime;
+            Metrics.getShared().record(Metrics.SOUND_START, latency);
+            GameEvents.SoundStart jfrEvent = startEvent;
+            if (jfrEvent != null) {
+                startEvent = null;
+                jfrEvent.commit();
+            }
+            synchronized (this) {
+                lastLatency = latency;
+                maxLatency = Math.max(maxLatency, latency);
+                totalLatency += latency;
+                plays++;
+            }
+        }
+    }
+
+    /**
+     * Closes every clip and stops the sound thread.
+     */
+    public synchronized void shutdown() {
+        soundThread.shutdownNow();
+        for (Clip[] clips : pools.values()) {
+            close(clips);
+        }
+        pools.clear();
+    }
+
+    // Closes the clips of one effect
+    private static void close(Clip[] clips) {
+        if (clips != null) {
+            for (Clip clip : clips) {
+                clip.close();
+            }
+        }
+    }
+
+    // Getters for the latency statistics, in nanoseconds
+
+    public long getLastLatency() {
+        return lastLatency;
+    }
+
+    public long getMaxLatency() {
+        return maxLatency;
+    }
+
+    public synchronized long getAverageLatency() {
+        return plays == 0 ? 0 : totalLatency / plays;
+    }
+
+    public synchronized long getPlays() {
+        return plays;
+    }
+}
@@ -0,0 +1,420 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * SpectatorFeed broadcasts one game to any number of viewers. Changes are collected during a tick and
+ * published once per tick as a Batch of deltas: for each card that changed, its index, its face-up and
+ * matched state and, when it is showing, its face id, plus the turn count when it changed. Batches are
+ * immutable byte arrays in a ring that every viewer reads without locks, so a viewer costs the publisher
+ * nothing and all viewers share the same bytes.
+ *
+ * A viewer that joins late, or falls so far behind that the ring has moved past it, starts again from the
+ * most recent snapshot batch, which holds the whole visible board. The publisher writes a new snapshot
+ * before the last one can leave the ring, so one is always available.
+ *
+ * Only one thread may publish (call start, cardChanged and flush); any thread may read.
+ */
+public class SpectatorFeed {
+    private static final int RING_SIZE = 1024; // Batches kept for viewers that are behind
+    private static final int MASK = RING_SIZE - 1;
+    private static final int SNAPSHOT_EVERY = RING_SIZE / 2; // Keep a snapshot in the newer half of the ring
+
+    // Bits of a card's state byte
+    public static final int FACE_UP = 1;
+    public static final int MATCHED = 2;
+
+    private final AtomicReferenceArray<Batch> ring = new AtomicReferenceArray<>(RING_SIZE);
+    private volatile long published = -1; // Sequence number of the newest batch
+    private volatile Batch latestSnapshot; // Newest snapshot batch
+    private final Consumer<Runnable> tickScheduler; // Runs a flush at the end of the current tick
+
+    private GameEngine engine; // Game being broadcast
+    private long[] dirty = new long[1]; // Cards changed since the last flush
+    private int dirtyCount; // Number of bits set in dirty
+    private byte[] states = new byte[0]; // State of each changed card when it was marked
+    private int publishedTurns; // Turn count viewers have last been sent
+    private boolean flushScheduled; // Whether a flush is waiting for the end of the tick
+    private final Encoder encoder = new Encoder(); // Builds the batch of the current tick
+
+    /**
+     * Batch is one published tick of changes, or a snapshot of the whole board.
+     */
+    public static final class Batch {
+        private final long sequence; // Position in the feed
+        private final boolean snapshot; // Whether this batch describes the whole board
+        private final byte[] data; // Encoded records, shared by every viewer
+
+        private Batch(long sequence, boolean snapshot, byte[] data) {
+            this.sequence = sequence;
+            this.snapshot = snapshot;
+            this.data = data;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public boolean isSnapshot() {
+            return snapshot;
+        }
+
+        // The encoded records; callers must not change the array
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+    /**
+     * Listener receives the decoded contents of a batch.
+     */
+    public interface Listener {
+        // A snapshot begins: forget the old board, every card is face down until told otherwise
+        void snapshot(int rows, int cols);
+
+        // A card is in a new state; face is -1 while the card is face down and not matched
+        void card(int index, int face, int state);
+
+        // The turn count changed
+        void turns(int turnCount);
+    }
+
+    /**
+     * Mirror rebuilds the board a viewer sees from nothing but decoded batches. Faces of cards that have
+     * never been shown are unknown and read as 0.
+     */
+    public static class Mirror implements Listener {
+        private int[] faces = new int[0]; // Face of every card that has been shown
+        private Board board; // Board rebuilt from the feed, or null before the first snapshot
+        private int turnCount; // Turn count last received
+
+        @Override
+        public void snapshot(int rows, int cols) {
+            faces = new int[rows * cols];
+            board = new Board(rows, cols, faces); // Shares faces, so shown faces are filled in below
+        }
+
+        @Override
+        public void card(int index, int face, int state) {
+            if (face >= 0) {
+                faces[index] = face;
+            }
+            board.setFlipped(index, (state & FACE_UP) != 0);
+            board.setMatched(index, (state & MATCHED) != 0);
+        }
+
+        @Override
+        public void turns(int turnCount) {
+            this.turnCount = turnCount;
+        }
+
+        /**
+         * Checks that the viewer sees exactly what the player sees: the same cards face up or matched,
+         * showing the same faces, and the same turn count.
+         *
+         * @param engine The engine playing the broadcast game
+         * @return true if the mirrored board matches the game
+         */
+        public boolean matches(GameEngine engine) {
+            Board actual = engine.getBoard();
+            if (board == null || actual.getRows() != board.getRows() || actual.getCols() != board.getCols()
+                    || engine.getTurnCount() != turnCount) {
+                return false;
+            }
+            for (int i = 0; i < actual.size(); i++) {
+                if (actual.isFlipped(i) != board.isFlipped(i) || actual.isMatched(i) != board.isMatched(i)
+                        || actual.isFaceUp(i) && actual.getFace(i) != board.getFace(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public Board getBoard() {
+            return board;
+        }
+
+        public int getTurnCount() {
+            return turnCount;
+        }
+    }
+
+    /**
+     * Subscriber is one viewer's position in the feed. Each subscriber must only be used by one thread.
+     */
+    public final class Subscriber {
+        private long cursor; // Sequence number of the next batch to read
+        private boolean synced; // Whether the viewer has received a snapshot since it last fell behind
+        private long resyncs; // Number of times the viewer had to start again from a snapshot
+
+        private Subscriber() {
+            resync();
+        }
+
+        /**
+         * Returns the next batch for this viewer, or null when the viewer is up to date. The first batch
+         * after joining or falling behind is always a snapshot.
+         *
+         * @return The next Batch, or null
+         */
+        public Batch next() {
+            while (cursor <= published) {
+                Batch batch = ring.get((int) (cursor & MASK));
+                if (batch == null || batch.sequence != cursor) {
+                    resyncs++;
+                    resync(); // The ring moved past this viewer
+                    continue;
+                }
+                cursor++;
+                if (synced || batch.snapshot) {
+                    synced = true;
+                    return batch;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Decodes every waiting batch into a listener.
+         *
+         * @param listener Receives the changes
+         * @return The number of batches delivered
+         */
+        public int poll(Listener listener) {
+            int delivered = 0;
+            Batch batch;
+            while ((batch = next()) != null) {
+                decode(batch, listener);
+                delivered++;
+            }
+            return delivered;
+        }
+
+        // Moves to the newest snapshot, or to the next batch when nothing has been published yet
+        private void resync() {
+            Batch snapshot = latestSnapshot;
+            cursor = snapshot != null ? snapshot.sequence : published + 1;
+            synced = false;
+        }
+
+        public long getResyncs() {
+            return resyncs;
+        }
+    }
+
+    // Constructor that accepts how to run the end-of-tick flush, for example through a GameScheduler
+    public SpectatorFeed(Consumer<Runnable> tickScheduler) {
+        this.tickScheduler = tickScheduler;
+    }
+
+    /**
+     * Adds a viewer. It receives a snapshot first and then every batch after it.
+     *
+     * @return The new Subscriber
+     */
+    public Subscriber subscribe() {
+        return new Subscriber();
+    }
+
+    /**
+     * Starts broadcasting a new game and publishes its snapshot straight away.
+     *
+     * @param engine The engine playing the game
+     */
+    public void start(GameEngine engine) {
+        this.engine = engine;
+        int words = (engine.getBoard().size() + 63) / 64;
+        if (dirty.length < words) {
+            dirty = new long[words];
+        }
+        if (states.length < engine.getBoard().size()) {
+            states = new byte[engine.getBoard().size()];
+        }
+        flushScheduled = false; // A flush waiting from the last game may have been cancelled
+        publishSnapshot();
+    }
+
+    /**
+     * Marks a card as changed. Its state is taken now, so a card turned back over later in the same tick
+     * is still seen face up, and published with the rest of the tick.
+     *
+     * @param index The index of the card
+     */
+    public void cardChanged(int index) {
+        if (engine == null) {
+            return;
+        }
+        states[index] = (byte) stateOf(engine.getBoard(), index);
+        long bit = 1L << index;
+        if ((dirty[index >>> 6] & bit) == 0) {
+            dirty[index >>> 6] |= bit;
+            dirtyCount++;
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Notes that the turn count may have changed. The change is published with the rest of the tick.
+     */
+    public void turnsChanged() {
+        if (engine != null) {
+            scheduleFlush();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            tickScheduler.accept(this::flush);
+        }
+    }
+
+    /**
+     * Publishes everything that changed since the last flush as one batch.
+     */
+    public void flush() {
+        flushScheduled = false;
+        if (engine == null) {
+            return;
+        }
+        if (published - latestSnapshot.sequence >= SNAPSHOT_EVERY) {
+            publishSnapshot(); // Includes the pending changes
+            return;
+        }
+        int turns = engine.getTurnCount();
+        if (dirtyCount == 0 && turns == publishedTurns) {
+            return;
+        }
+
+        Board board = engine.getBoard();
+        encoder.reset();
+        for (int word = 0; word < dirty.length; word++) {
+            long bits = dirty[word];
+            while (bits != 0) {
+                int index = word * 64 + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                writeCard(board, index, states[index]);
+            }
+            dirty[word] = 0;
+        }
+        dirtyCount = 0;
+        if (turns != publishedTurns) {
+            encoder.varint(((long) turns << 1) | 1);
+            publishedTurns = turns;
+        }
+        publish(new Batch(published + 1, false, encoder.toArray()));
+    }
+
+    // Publishes the whole visible board
+    private void publishSnapshot() {
+        Board board = engine.getBoard();
+        encoder.reset();
+        encoder.varint(board.getRows());
+        encoder.varint(board.getCols());
+        for (int index = 0; index < board.size(); index++) {
+            if (board.isFaceUp(index)) {
+                writeCard(board, index, stateOf(board, index)); // Face-down cards are implied
+            }
+        }
+        publishedTurns = engine.getTurnCount();
+        encoder.varint(((long) publishedTurns << 1) | 1);
+        Arrays.fill(dirty, 0);
+        dirtyCount = 0;
+        Batch snapshot = new Batch(published + 1, true, encoder.toArray());
+        publish(snapshot);
+        latestSnapshot = snapshot;
+    }
+
+    // Writes one card record: index with a low 0 bit, the state byte, then the face if it is showing
+    private void writeCard(Board board, int index, int state) {
+        encoder.varint((long) index << 1);
+        encoder.put(state);
+        if (state != 0) {
+            encoder.varint(board.getFace(index));
+        }
+    }
+
+    private static int stateOf(Board board, int index) {
+        return (board.isFlipped(index) ? FACE_UP : 0) | (board.isMatched(index) ? MATCHED : 0);
+    }
+
+    // Stores a batch in the ring, then makes it visible to readers
+    private void publish(Batch batch) {
+        ring.set((int) (batch.sequence & MASK), batch);
+        published = batch.sequence;
+    }
+
+    /**
+     * Decodes a batch into a listener.
+     *
+     * @param batch    The batch to decode
+     * @param listener Receives the records
+     */
+    public static void decode(Batch batch, Listener listener) {
+        byte[] data = batch.data;
+        int[] pos = new int[1];
+        if (batch.snapshot) {
+            int rows = (int) readVarint(data, pos);
+            int cols = (int) readVarint(data, pos);
+            listener.snapshot(rows, cols);
+        }
+        while (pos[0] < data.length) {
+            long value = readVarint(data, pos);
+            if ((value & 1) != 0) {
+                listener.turns((int) (value >>> 1));
+            } else {
+                int state = data[pos[0]++];
+                int face = state != 0 ? (int) readVarint(data, pos) : -1;
+                listener.card((int) (value >>> 1), face, state);
+            }
+        }
+    }
+
+    // Reads a varint at pos[0] and moves pos past it
+    private static long readVarint(byte[] data, int[] pos) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    public long getPublished() {
+        return published;
+    }
+
+    /**
+     * Encoder is a growable byte buffer reused for every batch the publisher builds.
+     */
+    private static final class Encoder {
+        private byte[] bytes = new byte[64];
+        private int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        void put(int b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = (byte) b;
+        }
+
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                put((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            put((int) value);
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
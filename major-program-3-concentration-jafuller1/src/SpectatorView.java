@@ -0,0 +1,97 @@
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.layout.VBox;
+
+/**
+ * SpectatorView watches a game through a SpectatorFeed. It keeps its own copy of the board, built only
+ * from the feed's batches, and draws it on a CanvasBoardView. Waiting batches are read once per frame,
+ * and only the cards they change are redrawn. Pressing its cards does nothing.
+ *
+ * The feed only carries face ids, so the viewer is also given the deck the game draws them from.
+ */
+public class SpectatorView extends VBox {
+    private final SpectatorFeed.Subscriber subscriber; // Position of this viewer in the feed
+    private final CanvasBoardView view; // Draws the mirrored board
+    private final Label turnLabel = new Label("Waiting for a game"); // Turn count of the watched game
+    private final SpectatorFeed.Mirror mirror; // Board rebuilt from the feed
+    private boolean newBoard; // Whether a snapshot arrived, so the whole board has to be shown again
+    private CardDeck deck; // Deck of the watched game, or null until it is known
+    private boolean shown; // Whether the mirrored board has been shown
+    private boolean deckChanged; // Whether the deck changed since the board was last drawn
+
+    // Reads every waiting batch and shows the result
+    private final AnimationTimer poller = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            int batches = subscriber.poll(mirror);
+            if (newBoard && deck != null) {
+                newBoard = false;
+                deckChanged = false;
+                view.applyLevel(new PreparedLevel(mirror.getBoard(), deck, 0, 0));
+                shown = true;
+            } else if (deckChanged && shown && !newBoard && fits(deck)) {
+                deckChanged = false; // A new theme for the board being shown
+                view.switchDeck(deck);
+            }
+            if (batches > 0) {
+                turnLabel.setText("Turns: " + mirror.getTurnCount());
+            }
+        }
+    };
+
+    // Constructor that accepts the feed to watch, the largest card size and the largest size of the board
+    public SpectatorView(SpectatorFeed feed, int maxCardSize, double maxBoardSize) {
+        super(4);
+        this.subscriber = feed.subscribe();
+        this.view = new CanvasBoardView(maxCardSize, maxBoardSize);
+        this.mirror = new SpectatorFeed.Mirror() {
+            @Override
+            public void snapshot(int rows, int cols) {
+                super.snapshot(rows, cols);
+                newBoard = true;
+            }
+
+            @Override
+            public void card(int index, int face, int state) {
+                super.card(index, face, state);
+                if (!newBoard && shown) {
+                    view.refreshCard(index); // Redrawn with the rest of this frame's changes
+                }
+            }
+        };
+        getChildren().addAll(turnLabel, view);
+        setAlignment(Pos.CENTER);
+        poller.start();
+    }
+
+    /**
+     * Sets the deck the watched game draws its faces from. It is used from the next frame: a board already
+     * showing switches to it if all its faces are in the deck, otherwise the deck belongs to a new game and
+     * waits for that game's snapshot.
+     *
+     * @param deck The game's deck
+     */
+    public void setDeck(CardDeck deck) {
+        this.deck = deck;
+        deckChanged = deck != null;
+    }
+
+    // Whether every face shown on the mirrored board is in the deck
+    private boolean fits(CardDeck deck) {
+        Board board = mirror.getBoard();
+        for (int i = 0; i < board.size(); i++) {
+            if (board.getFace(i) >= deck.getFaceCount()) {
+                return false; // The snapshot of the new board is still on its way
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops reading the feed, for example when the viewer's window closes.
+     */
+    public void stop() {
+        poller.stop();
+    }
+}
@@ -0,0 +1,168 @@
+import javafx.scene.image.Image;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * StreamedDeck is a deck too big to decode whole: a folder or zip that may hold thousands of image_N.png
+ * faces. Opening it only lists the faces. Each board then picks as many faces as it has pairs (or every
+ * face, if the deck has fewer) and decodes just those into a CardDeck of its own, so the decoded images
+ * grow with the board rather than with the deck and are dropped along with the board.
+ */
+public class StreamedDeck {
+    private static final Map<String, StreamedDeck> OPEN = new ConcurrentHashMap<>(); // Decks opened so far, by path
+
+    private final String name; // Name of the deck, its file or folder name
+    private final Path dir; // Folder holding the faces, or null for a zip
+    private final ZipFile zip; // Zip holding the faces, kept open, or null for a folder
+    private final String[] files; // File or entry name of every face, ordered by N
+
+    // Constructor that accepts where the faces are and the name of each face
+    private StreamedDeck(String name, Path dir, ZipFile zip, String[] files) {
+        this.name = name;
+        this.dir = dir;
+        this.zip = zip;
+        this.files = files;
+    }
+
+    /**
+     * Returns the deck at a path, listing its faces the first time the path is opened.
+     *
+     * @param path A folder or zip file of image_N.png faces
+     * @return The opened StreamedDeck
+     */
+    public static StreamedDeck open(String path) {
+        return OPEN.computeIfAbsent(path, StreamedDeck::list);
+    }
+
+    // Lists the faces of a folder or zip, ordered by N
+    private static StreamedDeck list(String path) {
+        TreeMap<Integer, String> faces = new TreeMap<>();
+        Path file = Paths.get(path);
+        try {
+            if (Files.isDirectory(file)) {
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(file, "image_*.png")) {
+                    for (Path entry : entries) {
+                        addFace(faces, entry.getFileName().toString());
+                    }
+                }
+                return new StreamedDeck(file.getFileName().toString(), file, null, toArray(faces));
+            }
+            ZipFile zip = new ZipFile(new File(path));
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                addFace(faces, entries.nextElement().getName());
+            }
+            return new StreamedDeck(file.getFileName().toString(), null, zip, toArray(faces));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open deck " + path, e);
+        }
+    }
+
+    // Adds a file to the faces if it is called image_N.png
+    private static void addFace(TreeMap<Integer, String> faces, String fileName) {
+        int id = CardDeck.faceId(fileName);
+        if (id >= 0) {
+            faces.put(id, fileName);
+        }
+    }
+
+    // Face file names in face order, refusing a deck without any
+    private static String[] toArray(TreeMap<Integer, String> faces) throws IOException {
+        if (faces.isEmpty()) {
+            throw new IOException("no image_N.png faces found");
+        }
+        return faces.values().toArray(new String[0]);
+    }
+
+    /**
+     * Returns how many different faces a board of this many cards is dealt from this deck.
+     *
+     * @param cards The number of cards on the board
+     * @return One face per pair, or every face of the deck if it has fewer
+     */
+    public int facesFor(int cards) {
+        return Math.min(cards / 2, files.length);
+    }
+
+    /**
+     * Picks faces for a board from the seed and decodes only those. Face i of the returned deck is the
+     * i-th face picked, so a layout dealt with LevelPreparer.dealFaces over count faces can use it as is.
+     * The same seed always picks the same faces.
+     *
+     * @param count The number of faces to pick, at most getFaceCount
+     * @param seed  The seed of the board
+     * @param size  The size in pixels to decode the faces at, or 0 for their own size
+     * @return A deck holding just the picked faces
+     */
+    public CardDeck deal(int count, long seed, int size) {
+        int[] picked = pick(count, new Random(~seed)); // Not the shuffle's sequence, so the two stay independent
+        return decode(picked, size);
+    }
+
+    // Picks count distinct faces in time proportional to count (Floyd's sampling)
+    private int[] pick(int count, Random random) {
+        int[] picked = new int[count];
+        Set<Integer> taken = new HashSet<>(count * 2);
+        int n = 0;
+        for (int j = files.length - count; j < files.length; j++) {
+            int face = random.nextInt(j + 1);
+            if (!taken.add(face)) {
+                face = j; // j is new, since only faces below it have been offered so far
+                taken.add(face);
+            }
+            picked[n++] = face;
+        }
+        return picked;
+    }
+
+    // Decodes the picked faces into a deck that can decode them again at another size
+    private CardDeck decode(int[] picked, int size) {
+        List<Image> images = new ArrayList<>(picked.length);
+        for (int face : picked) {
+            images.add(decodeFace(files[face], size));
+        }
+        return CardDeck.pack(name, images).withSource(other -> decode(picked, other));
+    }
+
+    // Decodes one face file, 0 for the size keeps its own size
+    private Image decodeFace(String file, int size) {
+        if (dir != null) {
+            String url = dir.resolve(file).toUri().toString();
+            return CardDeck.decodeImage(file, () -> new Image(url, size, size, true, true));
+        }
+        try (InputStream in = zip.getInputStream(zip.getEntry(file))) {
+            return CardDeck.decodeImage(file, () -> new Image(in, size, size, true, true));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + file + " from deck " + name, e);
+        }
+    }
+
+    // Getters for the deck contents
+
+    public String getName() {
+        return name;
+    }
+
+    // Number of faces in the whole deck
+    public int getFaceCount() {
+        return files.length;
+    }
+}
@@ -0,0 +1,184 @@
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * ThemeWatcher watches the folder of the theme pack in use and reloads faces as they change on disk. Only
+ * the faces whose files changed are decoded again, on the watcher's own thread, at the size of every
+ * variant of the deck. The decoded pixels are then copied over the old ones on the FX thread, so the live
+ * board changes in place without a new game. Bursts of events, such as an editor saving a file in several
+ * writes, are gathered for a short while and each face is reloaded once. Reading a file can itself be
+ * reported as a change, so a face is only reloaded when its file's modification time moved.
+ */
+public class ThemeWatcher implements AutoCloseable {
+    private static final long SETTLE_MILLIS = 100; // Quiet time after the last event before reloading
+
+    private final WatchService watchService; // Tells the thread when files change
+    private final IntConsumer onFaceChanged; // Called on the FX thread with each face that changed
+    private final Thread thread; // Waits for events and decodes the changed faces
+    private WatchKey key; // Registration of the watched folder, or null
+    private Path dir; // Folder of the watched theme pack
+    private CardDeck deck; // Deck loaded from that folder
+    private final Map<Integer, FileTime> loaded = new HashMap<>(); // Modification time of each face as loaded
+
+    // Constructor that accepts what to call when a face changed, and starts the watcher thread
+    public ThemeWatcher(IntConsumer onFaceChanged) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.onFaceChanged = onFaceChanged;
+        this.thread = new Thread(this::run, "theme-watcher");
+        thread.setDaemon(true); // Do not keep the program alive
+        thread.start();
+    }
+
+    /**
+     * Watches the folder of a theme pack, replacing the folder watched before.
+     *
+     * @param dir  The folder of the theme pack, or null to stop watching
+     * @param deck The deck loaded from the folder
+     */
+    public synchronized void watch(Path dir, CardDeck deck) {
+        if (key != null) {
+            key.cancel();
+            key = null;
+        }
+        this.dir = dir;
+        this.deck = deck;
+        loaded.clear();
+        if (dir == null) {
+            return;
+        }
+        for (int faceId = CardDeck.BACK; faceId < deck.getFaceCount(); faceId++) {
+            FileTime modified = modifiedTime(fileOf(faceId));
+            if (modified != null) {
+                loaded.put(faceId, modified);
+            }
+        }
+        try {
+            key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            System.out.println("Error: Could not watch theme " + dir + ": " + e.getMessage());
+        }
+    }
+
+    // Waits for changes, gathers them until the folder is quiet, then reloads each changed face
+    private void run() {
+        try {
+            while (true) {
+                WatchKey changed = watchService.take();
+                Set<Integer> faces = new TreeSet<>();
+                while (changed != null) {
+                    collect(changed, faces);
+                    changed = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                for (int faceId : faces) {
+                    reload(faceId);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed, stop watching
+        }
+    }
+
+    // Adds the faces named in a key's events and makes the key report again
+    private synchronized void collect(WatchKey changed, Set<Integer> faces) {
+        for (WatchEvent<?> event : changed.pollEvents()) {
+            if (changed != key || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                continue; // Left over from a theme no longer watched
+            }
+            String name = event.context().toString();
+            int faceId = name.equals(CardDeck.BACK_FILE) ? CardDeck.BACK : CardDeck.faceId(name);
+            if (faceId == CardDeck.BACK || (faceId >= 0 && faceId < deck.getFaceCount())) {
+                faces.add(faceId); // New faces past the end of the deck wait for the theme to be loaded again
+            }
+        }
+        changed.reset();
+    }
+
+    // Decodes one changed face for every variant of the deck and hands the pixels to the FX thread. The
+    // file's time is only recorded once every variant decoded, so a failed decode is tried again.
+    private void reload(int faceId) {
+        Path file;
+        CardDeck watched;
+        FileTime modified;
+        synchronized (this) {
+            if (dir == null) {
+                return;
+            }
+            file = fileOf(faceId);
+            modified = modifiedTime(file);
+            if (modified == null || modified.equals(loaded.get(faceId))) {
+                return; // Gone, or not really changed
+            }
+            watched = deck;
+        }
+        List<CardDeck> variants = new ArrayList<>(watched.withVariants());
+        List<Image> images = new ArrayList<>();
+        for (CardDeck variant : variants) {
+            Image image = variant.decodeFace(faceId, file);
+            if (image.isError()) {
+                System.out.println("Error: Could not reload " + file + ": " + image.getException());
+                return; // Probably still being written, the next event tries again
+            }
+            images.add(image);
+        }
+        synchronized (this) {
+            if (deck != watched) {
+                return; // The theme was switched meanwhile
+            }
+            loaded.put(faceId, modified);
+        }
+        Platform.runLater(() -> {
+            for (int i = 0; i < variants.size(); i++) {
+                variants.get(i).putFace(faceId, images.get(i));
+            }
+            if (deck == watched) { // Skip if the theme was switched meanwhile
+                onFaceChanged.accept(faceId);
+            }
+        });
+    }
+
+    // File of a face in the watched folder
+    private Path fileOf(int faceId) {
+        return dir.resolve(faceId == CardDeck.BACK ? CardDeck.BACK_FILE : "image_" + faceId + ".png");
+    }
+
+    // Modification time of a file, or null if it cannot be read
+    private static FileTime modifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stops watching and ends the watcher thread.
+     */
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.out.println("Error: Could not stop watching the theme: " + e.getMessage());
+        }
+    }
+}
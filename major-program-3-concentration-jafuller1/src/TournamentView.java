@@ -0,0 +1,229 @@
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Bounds;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.layout.TilePane;
+import javafx.scene.layout.VBox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * TournamentView shows many games played by bots at the same time, each on its own small board. Every
+ * board is a single CanvasBoardView drawing from the same shared deck atlas, so a board costs one canvas
+ * and a label, not 64 Card nodes with their own images.
+ *
+ * One AnimationTimer moves all the games along, and it stops working once the frame budget is spent, so
+ * the remaining boards are moved on the next frame. Boards scrolled out of sight keep playing but are not
+ * drawn until they come back into view. Finished boards do no work until their next game starts.
+ *
+ * Layouts are dealt on a LevelPreparer's background thread. Each board asks for the layout of its next game
+ * as soon as a game starts, so it is usually ready when the game ends, and only swapping it in happens on
+ * the FX thread.
+ */
+public class TournamentView extends ScrollPane {
+    private static final long MOVE_NANOS = 250_000_000; // Time between a bot's flips
+    private static final long RESOLVE_NANOS = 600_000_000; // How long both cards of a turn stay up
+    private static final long RESTART_NANOS = 3_000_000_000L; // Pause after a finished game
+    private static final long FRAME_BUDGET_NANOS = 4_000_000; // Work allowed per frame
+
+    private final Level level; // Level every board plays
+    private final LevelPreparer preparer; // Deals the boards' layouts in the background
+    private final List<TournamentBoard> boards = new ArrayList<>();
+    private final TilePane tiles = new TilePane(8, 8); // Holds the boards side by side
+    private int nextBoard; // Board the next frame starts with, so every board gets its turn
+    private long deferredMoves; // Moves pushed to a later frame because the budget ran out
+
+    // Moves the games along, one frame at a time
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            step(System.nanoTime());
+        }
+    };
+
+    /**
+     * TournamentBoard is one game: its engine, bot and view.
+     */
+    private final class TournamentBoard {
+        private final int number; // Number shown on the label
+        private final GameEngine engine = new GameEngine();
+        private final Bot bot;
+        private final Random random;
+        private final CanvasBoardView view;
+        private final Label label = new Label();
+        private final VBox tile;
+        private long nextAt; // When this board should act next
+        private int first = -1; // First card of the current turn
+        private int games; // Games finished
+        private CompletableFuture<PreparedLevel> nextLayout; // Layout of the next game, dealt in the background
+        private boolean waiting = true; // Whether the board waits for the layout of its next game
+
+        TournamentBoard(int number, String strategy, double boardSize, long seed) {
+            this.number = number;
+            this.bot = Bot.forStrategy(strategy);
+            this.random = new Random(seed);
+            this.view = new CanvasBoardView(64, boardSize);
+            this.tile = new VBox(2, view, label);
+            tile.setAlignment(Pos.CENTER);
+            label.setText("Board " + number + ": dealing");
+        }
+
+        // Asks for the layout of the next game
+        void prepareNext() {
+            nextLayout = preparer.prepare(level, random.nextLong());
+        }
+
+        // Shows the next game once its layout is ready and asks for the one after it
+        void startNextGame(long now) {
+            if (!nextLayout.isDone()) {
+                return; // Still being dealt, checked again next frame
+            }
+            PreparedLevel prepared;
+            try {
+                prepared = nextLayout.join();
+            } catch (CompletionException e) {
+                System.out.println("Error: Could not deal board " + number + ": " + e.getCause().getMessage());
+                prepareNext();
+                return;
+            }
+            prepareNext();
+            engine.newGame(prepared.getBoard());
+            bot.newGame(prepared.getBoard(), random);
+            view.applyLevel(prepared);
+            waiting = false;
+            first = -1;
+            nextAt = now + MOVE_NANOS;
+            updateLabel();
+        }
+
+        // Makes the next move: flip a first card, flip a second card, or finish the turn
+        void act(long now) {
+            if (waiting) {
+                startNextGame(now);
+                return;
+            }
+            if (engine.isComplete()) {
+                games++;
+                waiting = true;
+                startNextGame(now);
+                return;
+            }
+            if (engine.isTurnPending()) {
+                int second = engine.getSecondIndex();
+                engine.resolveTurn();
+                bot.turnEnded(first, second);
+                view.refreshCard(first);
+                view.refreshCard(second);
+                first = -1;
+                updateLabel();
+                nextAt = now + (engine.isComplete() ? RESTART_NANOS : MOVE_NANOS);
+                return;
+            }
+            if (first < 0) {
+                first = bot.pickFirst();
+                flip(first);
+                nextAt = now + MOVE_NANOS;
+            } else {
+                flip(bot.pickSecond(first));
+                nextAt = now + RESOLVE_NANOS;
+            }
+        }
+
+        private void flip(int index) {
+            engine.flip(index);
+            bot.saw(index);
+            view.refreshCard(index);
+        }
+
+        private void updateLabel() {
+            label.setText("Board " + number + ": " + engine.getTurnCount() + " turns, " + games + " won");
+        }
+    }
+
+    /**
+     * Creates a view with a number of boards.
+     *
+     * @param count     The number of boards
+     * @param level     The level every board plays
+     * @param strategy  The bot strategy, as accepted by Bot.forStrategy
+     * @param boardSize The width and height of each board in pixels
+     */
+    public TournamentView(int count, Level level, String strategy, double boardSize) {
+        this.level = level;
+        this.preparer = new LevelPreparer(l -> boards.get(0).view.getFacePixels(l.getRows(), l.getCols()));
+        tiles.setPadding(new Insets(8));
+        tiles.setPrefColumns((int) Math.ceil(Math.sqrt(count)));
+        setContent(tiles);
+        setFitToWidth(true);
+
+        long now = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            TournamentBoard board = new TournamentBoard(i + 1, strategy, boardSize, i);
+            boards.add(board);
+            tiles.getChildren().add(board.tile);
+            board.prepareNext();
+            board.nextAt = now + (long) i * MOVE_NANOS / count; // Spread the moves over the frames
+        }
+
+        // Only boards inside the viewport are drawn
+        viewportBoundsProperty().addListener((obs, oldBounds, bounds) -> updateLiveBoards());
+        vvalueProperty().addListener((obs, oldValue, value) -> updateLiveBoards());
+        hvalueProperty().addListener((obs, oldValue, value) -> updateLiveBoards());
+        timer.start();
+    }
+
+    // Moves every board that is due, until the frame budget is spent
+    private void step(long now) {
+        long deadline = now + FRAME_BUDGET_NANOS;
+        int count = boards.size();
+        for (int n = 0; n < count; n++) {
+            TournamentBoard board = boards.get((nextBoard + n) % count);
+            if (board.nextAt > now) {
+                continue; // Not its turn yet, or idle after a finished game
+            }
+            if (System.nanoTime() > deadline) {
+                deferredMoves++;
+                nextBoard = (nextBoard + n) % count; // Start here next frame
+                recordFrame(now);
+                return;
+            }
+            board.act(now);
+        }
+        nextBoard = 0;
+        recordFrame(now);
+    }
+
+    private void recordFrame(long start) {
+        Metrics.getShared().record("tournament.frame", System.nanoTime() - start);
+    }
+
+    // Turns drawing on for boards in the viewport and off for the rest
+    private void updateLiveBoards() {
+        Bounds viewport = localToScene(getLayoutBounds());
+        for (TournamentBoard board : boards) {
+            Bounds tileBounds = board.tile.localToScene(board.tile.getLayoutBounds());
+            board.view.setLive(viewport.intersects(tileBounds));
+        }
+    }
+
+    /**
+     * Stops all games.
+     */
+    public void stop() {
+        timer.stop();
+    }
+
+    public int getBoardCount() {
+        return boards.size();
+    }
+
+    public long getDeferredMoves() {
+        return deferredMoves;
+    }
+}